@@ -0,0 +1,63 @@
+package io.ignice.c17n.command;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Cost of recognizing a command. The trie lookup should stay flat as {@code commands} grows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandDispatchBenchmark {
+
+    private static final String COMMAND = "steal <@!80351110224678912> 250";
+    private static final String CHATTER = "did anyone see the match last night";
+
+    @Param({"5", "50", "500"})
+    private int commands;
+
+    private CommandTrie<String> trie;
+    private String lookup;
+    private CommandRegistry registry;
+    private CommandRegistry prefixed;
+
+    @Setup
+    public void setUp() {
+        final Map<String, String> names = IntStream.range(0, commands)
+                .mapToObj(i -> "command" + i)
+                .collect(Collectors.toMap(Function.identity(), Function.identity()));
+        trie = CommandTrie.of(names);
+        lookup = "command" + (commands - 1) + " <@1>";
+        registry = new CommandRegistry();
+        prefixed = new CommandRegistry(new CommandTrigger(CommandTrigger.Mode.PREFIX_OR_MENTION, "!"));
+    }
+
+    @Benchmark
+    public String trieLookup() {
+        return trie.find(lookup, 0, lookup.indexOf(' '));
+    }
+
+    @Benchmark
+    public Invocation parseCommand() {
+        return registry.parse(COMMAND);
+    }
+
+    @Benchmark
+    public Invocation parseChatter() {
+        return registry.parse(CHATTER);
+    }
+
+    @Benchmark
+    public Invocation rejectChatter() {
+        return prefixed.parse(CHATTER);
+    }
+}
@@ -0,0 +1,73 @@
+package io.ignice.c17n.gfx;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Byte level building blocks: array concatenation, descriptor serialization and the bulk little endian codec.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteMathBenchmark {
+
+    @Param({"16", "4096"})
+    private int length;
+
+    private byte[] head;
+    private byte[] tail;
+    private int[] values;
+    private byte[] encoded;
+    private LogicalScreenDescriptor descriptor;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(length);
+        head = new byte[length];
+        tail = new byte[length];
+        random.nextBytes(head);
+        random.nextBytes(tail);
+        values = random.ints(length, 0, 1 << 16).toArray();
+        encoded = new byte[4 * length];
+        descriptor = new LogicalScreenDescriptor(CanvasWidth.of(640), CanvasHeight.of(480),
+                PackedField.of(ReferenceRasters.palette()), (byte) 0, (byte) 0);
+    }
+
+    @Benchmark
+    public byte[] concat() {
+        return ByteMath.concat(head, tail);
+    }
+
+    @Benchmark
+    public byte[] logicalScreenDescriptorBytes() {
+        return descriptor.bytes();
+    }
+
+    @Benchmark
+    public byte[] encodeU16LE() {
+        ByteMath.encodeU16LE(values, 0, encoded, 0, values.length);
+        return encoded;
+    }
+
+    @Benchmark
+    public byte[] encodeU16LEPerByte() {
+        for (int i = 0; i < values.length; i++) {
+            encoded[2 * i] = ByteMath.lsb_0(values[i]);
+            encoded[2 * i + 1] = ByteMath.lsb_1(values[i]);
+        }
+        return encoded;
+    }
+
+    @Benchmark
+    public void unpackRgb(Blackhole blackhole) {
+        final int[] argb = new int[length / 3];
+        ByteMath.unpackRgb(head, 0, argb, 0, argb.length);
+        blackhole.consume(argb);
+    }
+}
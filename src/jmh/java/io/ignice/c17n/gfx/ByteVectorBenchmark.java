@@ -0,0 +1,63 @@
+package io.ignice.c17n.gfx;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading {@link ByteVector}s: per-byte iteration against bulk copies, for flat arrays and ropes of 4KB slices.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteVectorBenchmark {
+
+    private static final int SLICE_LENGTH = 1 << 12;
+
+    @Param({"65536", "1048576"})
+    private int length;
+
+    @Param({"contiguous", "rope"})
+    private String layout;
+
+    private ByteVector vector;
+    private ByteBuffer target;
+
+    @Setup
+    public void setUp() {
+        final byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        if (layout.equals("rope")) {
+            final RopeByteVector.Builder builder = RopeByteVector.builder();
+            for (int offset = 0; offset < length; offset += SLICE_LENGTH) {
+                builder.append(ByteVector.wrap(bytes, offset, Math.min(SLICE_LENGTH, length - offset)));
+            }
+            vector = builder.build();
+        } else {
+            vector = ByteVector.wrap(bytes);
+        }
+        target = ByteBuffer.allocateDirect(length);
+    }
+
+    @Benchmark
+    public long unsignedIterator() {
+        long sum = 0;
+        final PrimitiveIterator.OfInt iterator = vector.unsignedIterator();
+        while (iterator.hasNext()) {
+            sum += iterator.nextInt();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public ByteBuffer copyTo() {
+        vector.copyTo(0, target.clear(), vector.length());
+        return target;
+    }
+}
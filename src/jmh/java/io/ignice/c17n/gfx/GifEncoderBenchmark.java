@@ -0,0 +1,80 @@
+package io.ignice.c17n.gfx;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end encoding of reference rasters, from palette indices (or true color) to GIF bytes.
+ * <p>
+ * The {@code lzw} score is in rasters per second; multiply it by the raster size, {@code WIDTH * HEIGHT} index bytes,
+ * and divide by 10^6 for LZW throughput in MB/s.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GifEncoderBenchmark {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final int FRAMES = 12;
+
+    // percentage of random pixels, from smooth gradients to noise
+    @Param({"0", "25", "100"})
+    private int noise;
+
+    private GIF animation;
+    private byte[] indices;
+    private int[] argb;
+    private GifEncoder encoder;
+    private ByteBuffer target;
+    private DirectBufferPool pool;
+
+    @Setup
+    public void setUp() {
+        animation = ReferenceRasters.animation(FRAMES, WIDTH, HEIGHT, noise);
+        indices = ReferenceRasters.indices(WIDTH, HEIGHT, 0, noise);
+        argb = ReferenceRasters.argb(WIDTH, HEIGHT);
+        encoder = new GifEncoder();
+        target = ByteBuffer.allocate(2 * FRAMES * WIDTH * HEIGHT);
+        pool = new DirectBufferPool(DirectBufferPool.DEFAULT_MAX_RETAINED_BYTES);
+    }
+
+    @Benchmark
+    public ByteBuffer lzw() {
+        final HeapByteSink sink = new HeapByteSink(indices.length);
+        LzwEncoder.local().encode(8, indices, sink);
+        return sink.claim(0);
+    }
+
+    @Benchmark
+    public ByteBuffer serial() {
+        encoder.encode(animation, target.clear());
+        return target;
+    }
+
+    @Benchmark
+    public int direct() {
+        try (DirectByteVector vector = encoder.encode(animation, pool)) {
+            return vector.length();
+        }
+    }
+
+    @Benchmark
+    public ByteVector parallel() {
+        return GifEncoder.encode(animation, Schedulers.parallel(), Runtime.getRuntime().availableProcessors()).block();
+    }
+
+    @Benchmark
+    public void quantizeAndEncode(Blackhole blackhole) {
+        final QuantizedRaster raster = ColorQuantizer.quantize(argb);
+        encoder.encode(raster.gif(WIDTH, HEIGHT), target.clear());
+        blackhole.consume(target);
+    }
+}
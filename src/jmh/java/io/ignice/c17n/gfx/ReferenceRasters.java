@@ -0,0 +1,63 @@
+package io.ignice.c17n.gfx;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Deterministic rasters shared by the benchmarks, so results stay comparable between runs.
+ */
+final class ReferenceRasters {
+
+    private ReferenceRasters() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * @return a 256 color palette of grey levels
+     */
+    static GlobalColorTable palette() {
+        final byte[] rgb = new byte[3 * GlobalColorTable.MAX_COLORS];
+        for (int i = 0; i < GlobalColorTable.MAX_COLORS; i++) {
+            rgb[3 * i] = rgb[3 * i + 1] = rgb[3 * i + 2] = (byte) i;
+        }
+        return new GlobalColorTable(rgb);
+    }
+
+    /**
+     * @param noise percentage of pixels replaced by random indices; 0 compresses well, 100 barely at all
+     */
+    static byte[] indices(int width, int height, int frame, int noise) {
+        final Random random = new Random(31L * frame + noise);
+        final byte[] indices = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                indices[y * width + x] = (byte) (random.nextInt(100) < noise ? random.nextInt(256) : (x + frame) / 8 + y / 8);
+            }
+        }
+        return indices;
+    }
+
+    static int[] argb(int width, int height) {
+        final Random random = new Random(width ^ height);
+        final int[] argb = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                argb[y * width + x] = 0xFF000000 | (x * 255 / width) << 16 | (y * 255 / height) << 8 | random.nextInt(32);
+            }
+        }
+        return argb;
+    }
+
+    static GIF animation(int frames, int width, int height, int noise) {
+        final GlobalColorTable table = palette();
+        final List<ImageBlock> blocks = IntStream.range(0, frames)
+                .mapToObj(frame -> new ImageBlock(new GraphicControlExtension(4), new ImageDescriptor(width, height),
+                        IndexedImageData.of(table, indices(width, height, frame, noise))))
+                .collect(Collectors.toList());
+        return new GIF(Header.GIF89A,
+                new LogicalScreenDescriptor(CanvasWidth.of(width), CanvasHeight.of(height), PackedField.of(table), (byte) 0, (byte) 0),
+                table, blocks, LoopExtension.FOREVER);
+    }
+}
@@ -0,0 +1,49 @@
+package io.ignice.c17n.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenizing message content: regex split against the in-place tokenizer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringOpsBenchmark {
+
+    @Param({
+            "steal <@!80351110224678912> 250",
+            "  did anyone else see the match last night? that last minute goal was unreal  "
+    })
+    private String content;
+
+    @Benchmark
+    public void splitWhitespace(Blackhole blackhole) {
+        for (String token : StringOps.splitWhitespace(content)) {
+            blackhole.consume(token);
+        }
+    }
+
+    @Benchmark
+    public void tokenize(Blackhole blackhole) {
+        final StringOps.Tokenizer tokenizer = StringOps.tokenize(content);
+        while (tokenizer.next()) {
+            blackhole.consume(tokenizer.end());
+        }
+    }
+
+    @Benchmark
+    public String splitFirstToken() {
+        return StringOps.splitWhitespace(content)[0];
+    }
+
+    @Benchmark
+    public CharSequence firstToken() {
+        return StringOps.firstToken(content);
+    }
+}
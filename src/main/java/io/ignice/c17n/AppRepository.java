@@ -3,19 +3,27 @@ package io.ignice.c17n;
 import discord4j.common.util.Snowflake;
 import io.ignice.c17n.data.User;
 import io.ignice.c17n.util.SanityOps;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Repository
-public interface AppRepository extends R2dbcRepository<User, Long> {
+public interface AppRepository extends R2dbcRepository<User, Long>, WalletOperations, LedgerOperations {
 
     Mono<User> findUserBySnowflake(long snowflake);
 
+    /**
+     * Keyset pagination: the next {@code limit} users by id after {@code afterId}, which costs the same whichever
+     * page is asked for, unlike an OFFSET.
+     */
+    @Query("SELECT * FROM users WHERE id > :afterId ORDER BY id LIMIT :limit")
+    Flux<User> findPage(@Param("afterId") long afterId, @Param("limit") int limit);
+
     default Mono<User> findUserBySnowflake(Snowflake snowflake) {
         SanityOps.requireNonNull(snowflake, "snowflake");
         return findUserBySnowflake(snowflake.asLong());
     }
-
-
 }
@@ -1,14 +1,28 @@
 package io.ignice.c17n;
 
+import io.ignice.c17n.command.CommandPipeline;
+import io.ignice.c17n.command.CommandTrigger;
+import io.ignice.c17n.data.LedgerCompactor;
+import io.ignice.c17n.data.MeteredConnectionPool;
+import io.ignice.c17n.data.WalletLedger;
+import io.ignice.c17n.shard.GatewayProfile;
+import io.ignice.c17n.shard.Sharding;
+import io.ignice.c17n.util.StatsLog;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
 import io.r2dbc.spi.ConnectionFactories;
 import io.r2dbc.spi.ConnectionFactory;
 import io.r2dbc.spi.ConnectionFactoryOptions;
 import io.r2dbc.spi.Option;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.type.AnnotatedTypeMetadata;
 import org.springframework.data.r2dbc.config.AbstractR2dbcConfiguration;
 import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
 import org.springframework.r2dbc.connection.R2dbcTransactionManager;
@@ -19,6 +33,7 @@ import org.springframework.transaction.ReactiveTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.transaction.reactive.TransactionalOperator;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 
@@ -52,6 +67,81 @@ public class Config extends AbstractR2dbcConfiguration {
     @Value("${database.locale}")
     private String locale;
 
+    @Value("${database.pool.enabled:true}")
+    private boolean pooled;
+
+    @Value("${database.pool.initial-size:2}")
+    private int poolInitialSize;
+
+    @Value("${database.pool.max-size:16}")
+    private int poolMaxSize;
+
+    @Value("${database.pool.max-acquire-time:PT5S}")
+    private String poolMaxAcquireTime;
+
+    @Value("${database.pool.max-idle-time:PT30M}")
+    private String poolMaxIdleTime;
+
+    @Value("${database.pool.max-life-time:PT1H}")
+    private String poolMaxLifeTime;
+
+    @Value("${database.pool.validation-query:SELECT 1}")
+    private String poolValidationQuery;
+
+    @Value("${bot.trigger}")
+    private String trigger;
+
+    @Value("${bot.prefix}")
+    private String prefix;
+
+    @Value("${bot.pipeline.database.concurrency:16}")
+    private int databaseConcurrency;
+
+    @Value("${bot.pipeline.database.queued:256}")
+    private int databaseQueued;
+
+    @Value("${bot.pipeline.compute.concurrency:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int computeConcurrency;
+
+    @Value("${bot.pipeline.compute.queued:64}")
+    private int computeQueued;
+
+    @Value("${bot.gateway.minimize:false}")
+    private boolean minimizeGateway;
+
+    @Value("${bot.gateway.store:full}")
+    private String gatewayStore;
+
+    @Value("${bot.shards.count:auto}")
+    private String shardCount;
+
+    @Value("${bot.shards.indices:}")
+    private String shardIndices;
+
+    @Value("${bot.shards.dedicated-schedulers:false}")
+    private boolean dedicatedShardSchedulers;
+
+    @Value("${bot.wallet.write-behind:false}")
+    private boolean writeBehind;
+
+    @Value("${bot.wallet.stripes:16}")
+    private int ledgerStripes;
+
+    @Value("${bot.wallet.batch-size:500}")
+    private int ledgerBatchSize;
+
+    @Value("${bot.wallet.flush-interval:PT5S}")
+    private String ledgerFlushInterval;
+
+    @Value("${bot.wallet.flush-to:users}")
+    private String ledgerFlushTo;
+
+    @Value("${bot.wallet.compaction-interval:PT1M}")
+    private String compactionInterval;
+
+    @Value("${bot.stats.interval:PT1M}")
+    private String statsInterval;
+
     @Override
     protected List<Object> getCustomConverters() {
 //        return List.of(new UserWriteConverter(), new UserReadConverter());
@@ -61,7 +151,7 @@ public class Config extends AbstractR2dbcConfiguration {
     @Bean
     @Override
     public ConnectionFactory connectionFactory() {
-        return ConnectionFactories.find(ConnectionFactoryOptions.builder()
+        final ConnectionFactory connections = ConnectionFactories.find(ConnectionFactoryOptions.builder()
                 .option(ConnectionFactoryOptions.DRIVER, driver)
 //                .option(ConnectionFactoryOptions.PROTOCOL, protocol)
                 .option(ConnectionFactoryOptions.HOST, host)
@@ -73,6 +163,18 @@ public class Config extends AbstractR2dbcConfiguration {
                 .option(Option.valueOf("statement_timeout"), "5m")
                 .option(Option.valueOf("locale"), locale)
                 .build());
+        if (!pooled) {
+            return connections;
+        }
+        // session options above are set once per pooled connection rather than once per query
+        return new MeteredConnectionPool(ConnectionPoolConfiguration.builder(connections)
+                .name("c17n")
+                .initialSize(poolInitialSize)
+                .maxSize(poolMaxSize)
+                .maxAcquireTime(Duration.parse(poolMaxAcquireTime))
+                .maxIdleTime(Duration.parse(poolMaxIdleTime))
+                .maxLifeTime(Duration.parse(poolMaxLifeTime))
+                .validationQuery(poolValidationQuery));
     }
 
     @Bean
@@ -85,6 +187,67 @@ public class Config extends AbstractR2dbcConfiguration {
         return TransactionalOperator.create(transactionManager);
     }
 
+    @Bean
+    public CommandTrigger commandTrigger() {
+        return new CommandTrigger(CommandTrigger.Mode.of(trigger), prefix);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public CommandPipeline commandPipeline() {
+        return new CommandPipeline(new CommandPipeline.Limits(databaseConcurrency, databaseQueued),
+                new CommandPipeline.Limits(computeConcurrency, computeQueued));
+    }
+
+    // disposing stops the periodic flush only; whoever owns the gateway flushes what is left once it is closed
+    @Bean(destroyMethod = "dispose")
+    public WalletLedger walletLedger(AppRepository repository, TransactionalOperator transactionalOperator) {
+        final WalletLedger.Settings settings = new WalletLedger.Settings(writeBehind, ledgerStripes, ledgerBatchSize,
+                Duration.parse(ledgerFlushInterval), WalletLedger.Target.of(ledgerFlushTo));
+        return switch (settings.target()) {
+            case USERS -> new WalletLedger((snowflakes, deltas) -> repository.addToWallets(snowflakes, deltas)
+                    .as(transactionalOperator::transactional), repository::findUserBySnowflake, settings);
+            // a single insert per batch, which needs no transaction of its own
+            case LEDGER -> new WalletLedger(repository::appendToLedger, repository::findUserWithLedger, settings);
+        };
+    }
+
+    // only the ledger mode appends to wallet_ledger, so there is nothing to compact otherwise
+    @Bean(destroyMethod = "dispose")
+    @Conditional(LedgerMode.class)
+    public LedgerCompactor ledgerCompactor(AppRepository repository, TransactionalOperator transactionalOperator) {
+        return new LedgerCompactor(() -> repository.compactLedger().as(transactionalOperator::transactional),
+                Duration.parse(compactionInterval));
+    }
+
+    // logged while the bot runs, rather than only once it exits
+    @Bean(destroyMethod = "dispose")
+    public StatsLog statsLog(ConnectionFactory connectionFactory, ObjectProvider<LedgerCompactor> ledgerCompactor) {
+        final StatsLog stats = new StatsLog(Duration.parse(statsInterval));
+        if (connectionFactory instanceof MeteredConnectionPool pool) {
+            stats.register("Connection pool", pool::stats);
+        }
+        ledgerCompactor.ifAvailable(compactor -> stats.register("Ledger compaction", compactor::stats));
+        return stats;
+    }
+
+    @Bean
+    public Sharding sharding() {
+        return Sharding.of(shardCount, shardIndices, dedicatedShardSchedulers);
+    }
+
+    @Bean
+    public GatewayProfile gatewayProfile() {
+        return new GatewayProfile(minimizeGateway, GatewayProfile.Store.of(gatewayStore));
+    }
+
+    static final class LedgerMode implements Condition {
+
+        @Override
+        public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            return WalletLedger.Target.of(context.getEnvironment().getProperty("bot.wallet.flush-to", "users")) == WalletLedger.Target.LEDGER;
+        }
+    }
+
     @Bean
     public ConnectionFactoryInitializer initializer(ConnectionFactory connectionFactory) {
         final ConnectionFactoryInitializer initializer = new ConnectionFactoryInitializer();
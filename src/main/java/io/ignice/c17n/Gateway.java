@@ -1,176 +1,267 @@
 package io.ignice.c17n;
 
 import discord4j.core.DiscordClient;
+import discord4j.core.GatewayDiscordClient;
 import discord4j.core.event.ReactiveEventAdapter;
+import discord4j.core.event.domain.Event;
 import discord4j.core.event.domain.lifecycle.ReadyEvent;
-import discord4j.core.event.domain.message.MessageBulkDeleteEvent;
 import discord4j.core.event.domain.message.MessageCreateEvent;
-import discord4j.core.event.domain.message.MessageDeleteEvent;
-import discord4j.core.event.domain.message.MessageUpdateEvent;
 import discord4j.core.object.entity.Message;
-import discord4j.core.object.entity.channel.MessageChannel;
 import discord4j.core.shard.GatewayBootstrap;
 import discord4j.gateway.GatewayOptions;
+import io.ignice.c17n.command.CommandPipeline;
+import io.ignice.c17n.command.CommandRegistry;
+import io.ignice.c17n.command.CommandTrigger;
+import io.ignice.c17n.command.Commands;
+import io.ignice.c17n.command.Invocation;
+import io.ignice.c17n.command.Workload;
+import io.ignice.c17n.data.Leaderboard;
 import io.ignice.c17n.data.User;
+import io.ignice.c17n.data.WalletCache;
+import io.ignice.c17n.data.WalletLedger;
+import io.ignice.c17n.outbound.DiscordOutboundSink;
+import io.ignice.c17n.outbound.OutboundScheduler;
+import io.ignice.c17n.shard.GatewayProfile;
+import io.ignice.c17n.shard.ShardPipeline;
+import io.ignice.c17n.shard.Sharding;
+import io.ignice.c17n.shard.Subscriptions;
+import io.ignice.c17n.util.MessageOps;
 import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.EnumSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
-import java.util.function.LongUnaryOperator;
+import java.util.stream.Collectors;
 
-import static io.ignice.c17n.util.ArrayOps.head;
-import static io.ignice.c17n.util.ArrayOps.tail;
-import static io.ignice.c17n.util.StringOps.splitWhitespace;
 import static java.lang.String.format;
-import static java.util.Objects.isNull;
-import static reactor.core.publisher.Operators.addCap;
 
 public class Gateway extends ReactiveEventAdapter {
 
     private static final Logger log = LoggerFactory.getLogger(Gateway.class);
 
+    // rows per list page, which is keyed by the last id shown so that deep pages cost as little as the first one
+    private static final int LIST_PAGE_SIZE = 200;
+
+    // users shown by top, unless asked for fewer
+    private static final int TOP_DEFAULT = 10;
+    private static final int TOP_MAX = 25;
+
+    private static final String BUSY = "busy, try again in a moment";
+
     private final DiscordClient client;
     private final AppRepository repo;
-    private final TransactionalOperator txOperator;
+    private final WalletLedger ledger;
+    private final CommandRegistry commands;
+    private final CommandPipeline pipeline;
+    private final WalletCache wallets;
+    private final Leaderboard leaderboard;
+    private final OutboundScheduler outbound;
+    private final ShardPipeline shards;
+    private final GatewayProfile profile;
+    private final Subscriptions subscriptions;
+    private final String prefix;
+    private final String help;
 
-    public Gateway(DiscordClient client, AppRepository repo, TransactionalOperator transactionalOperator) {
+    // the client logged in by connect, until it disconnects
+    private volatile GatewayDiscordClient connected;
+
+    public Gateway(DiscordClient client, AppRepository repo, WalletLedger ledger, CommandTrigger trigger,
+                   CommandPipeline pipeline, Sharding sharding, GatewayProfile profile) {
         this.client = client;
         this.repo = repo;
-        this.txOperator = transactionalOperator;
+        this.ledger = ledger;
+        this.commands = new CommandRegistry(trigger);
+        this.pipeline = pipeline;
+        // through the ledger, so that cached wallets include deltas which are not written yet
+        this.wallets = new WalletCache(ledger::user);
+        this.leaderboard = new Leaderboard();
+        this.outbound = new OutboundScheduler(new DiscordOutboundSink(client));
+        this.shards = new ShardPipeline(sharding);
+        this.profile = profile;
+        this.subscriptions = Subscriptions.of(getClass());
+        this.prefix = trigger.mode() == CommandTrigger.Mode.PREFIX || trigger.mode() == CommandTrigger.Mode.PREFIX_OR_MENTION
+                ? trigger.prefix()
+                : "";
+        this.help = Arrays.stream(Commands.values())
+                .map(command -> prefix + command.usage())
+                .collect(Collectors.joining("\n"));
     }
 
     public Mono<Void> connect(Function<GatewayBootstrap<GatewayOptions>, GatewayBootstrap<GatewayOptions>> options) {
-        return options.apply(client.gateway()).withGateway(client -> client.on(this));
+        log.info("Gateway profile {} for {}", profile, subscriptions);
+        final Mono<Void> gateway = options.apply(profile.configure(client.gateway(), subscriptions)
+                        .setSharding(shards.sharding().strategy()))
+                .withGateway(client -> {
+                    connected = client;
+                    return shards.dispatch(client.on(Event.class), this::hookOnEvent);
+                })
+                .doFinally(signal -> {
+                    connected = null;
+                    shards.dispose();
+                });
+        // the leaderboard is only kept up to date from here on, so it is seeded before any command can change a wallet,
+        // from wherever the ledger reads balances
+        final Flux<User> users = switch (ledger.settings().target()) {
+            case USERS -> repo.findAll();
+            case LEDGER -> repo.findAllWithLedger();
+        };
+        return leaderboard.seed(users)
+                .doOnSuccess(seeded -> log.info("Ranked {} users", leaderboard.size()))
+                .then(gateway);
     }
 
-    @Override
-    public Publisher<?> onReady(ReadyEvent event) {
-        return Mono.just(event.getSelf().getUsername()).doOnNext(username -> log.info("Logged in as " + username));
+    /**
+     * Logs out of every shard, upon which the {@link #connect(Function) connection} completes.
+     *
+     * @return completes once logged out, or right away if not connected
+     */
+    public Mono<Void> disconnect() {
+        return Mono.defer(() -> {
+            final GatewayDiscordClient client = connected;
+            return client == null ? Mono.empty() : client.logout();
+        });
     }
 
-    @Override
-    public Publisher<?> onMessageCreate(MessageCreateEvent event) {
-        final Message message = event.getMessage();
-        final String[] words = splitWhitespace(message.getContent());
-        final String command = head(words, "help");
-        final String[] args = tail(words);
-
-//        event.getMessage().getAuthorAsMember().block().getId();
-//        final Optional<discord4j.core.object.entity.User> author = message.getAuthor();
-//        event.getMessage().getAuthor().get().getId()
-
-        // todo rm: quick guard
-//        log.info(Arrays.toString(words));
-//        if (command.equals("bal") && args.length < 1) {
-//            return defaultCmd();
-//        } else if (command.equals("steal") && args.length < 2) {
-//            return defaultCmd();
-//        }
-
-        final Mono<MessageChannel> mono = message.getChannel();
-        //
-        return switch (command) {
-            case "bal" -> balCmd(mono, head(args, "0"));
-            case "list" -> listCmd(mono);
-            case "ping" -> pingCmd(mono);
-            case "help" -> helpCmd(mono);
-            case "steal" -> stealCmd(mono, head(args, "0"), head(args, "1"));
-            default -> defaultCmd();
-        };
+    public CommandRegistry.Stats commandStats() {
+        return commands.stats();
     }
 
-    enum ArgMatcher {
-        NEGATIVE, POSITIVE, ZERO
+    public OutboundScheduler.Stats outboundStats() {
+        return outbound.stats();
     }
 
-    enum Commands {
-        BAL("bal"),
-        LIST("list"),
-        PING("ping"),
-        HELP("help"),
-        STEAL("steal", EnumSet.of(ArgMatcher.POSITIVE));
-
-        private final String command;
-        // enum set lets us have
-        private final List<EnumSet<ArgMatcher>> args;
+    public CommandPipeline.Stats pipelineStats(Workload workload) {
+        return pipeline.stats(workload);
+    }
 
-        Commands(String command, EnumSet<ArgMatcher> ... args) {
-            this.command = command;
-            this.args = List.of(args);
-        }
+    public WalletCache.Stats walletStats() {
+        return wallets.stats();
     }
 
-    private Flux<Message> listCmd(Mono<MessageChannel> mono) {
-        return repo.findAll()
-                .map(user -> format("%d --> %d", user.id(), user.wallet()))
-                .flatMap(message -> echo(mono, message));
+    public WalletLedger.Stats ledgerStats() {
+        return ledger.stats();
     }
 
-    private Mono<Message> balCmd(Mono<MessageChannel> mono, String key) {
-        return mono.flatMap(channel -> repo.findById(Long.getLong(key))
-                .map(User::wallet)
-                .flatMap(balance -> channel.createMessage(Objects.toString(balance, "NULL"))));
+    public List<ShardPipeline.Stats> shardStats() {
+        return shards.stats();
     }
 
-    private Mono<Message> pingCmd(Mono<MessageChannel> mono) {
-        return echo(mono, "pong");
+    /**
+     * @return dispatches discarded before entity mapping because no handler wants them
+     */
+    public long discardedDispatches() {
+        return subscriptions.discarded();
     }
 
-    private Mono<Message> helpCmd(Mono<MessageChannel> mono) {
-        return echo(mono, """
-                bal
-                steal""");
+    @Override
+    public Publisher<?> onReady(ReadyEvent event) {
+        commands.trigger().self(event.getSelf().getId().asLong());
+        return Mono.just(event.getSelf().getUsername()).doOnNext(username -> log.info("Logged in as {} on shard {}", username, event.getShardInfo().format()));
     }
 
-    // todo remove for command handler
-    private Mono<Message> stealCmd(Mono<MessageChannel> mono, String key, String amount) {
-        final Long n = Long.getLong(amount);
-        if (isNull(n)) {
-            return echo(mono, "amount must be supplied", n);
-        } else if (n <= 0) {
-            return echo(mono, "amount must be a positive number but got %d", n);
-        } else {
-            // todo need transactionalOperator.commit or something?
-            return mono
-                    .flatMap(channel -> repo.findById(Long.getLong(key))
-                            .flatMap(user -> repo.save(updateWallet(user, w -> addCap(w, n))))
-                            .as(txOperator::transactional))
-                    .then(echo(mono, "stealing %d from the bank", n));
+    @Override
+    public Publisher<?> onMessageCreate(MessageCreateEvent event) {
+        final Message message = event.getMessage();
+        final Invocation invocation = commands.parse(message.getContent());
+        if (invocation == null) {
+            return defaultCmd();
+        }
+        final long channelId = message.getChannelId().asLong();
+        if (!invocation.isValid()) {
+            return echo(channelId, "%s", invocation.error());
         }
+        final Mono<Void> handler = Mono.defer(() -> switch (invocation.command()) {
+            case BAL -> balCmd(channelId, invocation.arg(0));
+            case LIST -> listCmd(channelId, invocation.arg(0));
+            case PING -> pingCmd(channelId);
+            case HELP -> helpCmd(channelId);
+            case TOP -> topCmd(channelId, invocation.arg(0));
+            case STEAL -> stealCmd(channelId, invocation.arg(0), invocation.arg(1));
+        });
+        return pipeline.submit(invocation.command().workload(), handler)
+                .onErrorResume(RejectedExecutionException.class, shed -> echo(channelId, BUSY));
     }
 
-    private Mono<Object> defaultCmd() {
-        return Mono.empty();
+    private Mono<Void> listCmd(long channelId, long afterId) {
+        return Flux.defer(() -> {
+            final AtomicLong lastId = new AtomicLong(afterId);
+            final AtomicInteger rows = new AtomicInteger();
+            final Flux<String> lines = repo.findPage(afterId, LIST_PAGE_SIZE)
+                    .doOnNext(user -> {
+                        lastId.set(user.id());
+                        rows.incrementAndGet();
+                    })
+                    .map(user -> format("%d --> %d", user.id(), user.wallet()))
+                    .concatWith(Mono.fromSupplier(() -> rows.get() == 0 ? "no more users"
+                            : rows.get() < LIST_PAGE_SIZE ? null
+                            : format("next page: %s%s %d", prefix, Commands.LIST.command(), lastId.get())));
+            return MessageOps.pack(lines, MessageOps.MAX_LENGTH)
+                    .concatMap(page -> outbound.submit(channelId, page, OutboundScheduler.Priority.BULK));
+        }).then();
     }
 
-    @Override
-    public Publisher<?> onMessageDelete(MessageDeleteEvent event) {
-        return super.onMessageDelete(event);
+    private Mono<Void> balCmd(long channelId, long snowflake) {
+        return wallets.wallet(snowflake)
+                .flatMap(balance -> echo(channelId, "%d", balance));
     }
 
-    @Override
-    public Publisher<?> onMessageUpdate(MessageUpdateEvent event) {
-        return super.onMessageUpdate(event);
+    private Mono<Void> pingCmd(long channelId) {
+        return echo(channelId, "pong");
     }
 
-    @Override
-    public Publisher<?> onMessageBulkDelete(MessageBulkDeleteEvent event) {
-        return super.onMessageBulkDelete(event);
+    private Mono<Void> helpCmd(long channelId) {
+        return echo(channelId, "%s", help);
     }
 
-    private static Mono<Message> echo(Mono<MessageChannel> mono, String formatted, Object ... args) {
-        return mono.flatMap(channel -> channel.createMessage(String.format(formatted, args)));
+    // count is 0 when left out
+    private Mono<Void> topCmd(long channelId, long count) {
+        final List<Leaderboard.Rank> top = leaderboard.top(count == 0 ? TOP_DEFAULT : (int) Math.min(count, TOP_MAX));
+        if (top.isEmpty()) {
+            return echo(channelId, "no users yet");
+        }
+        final StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < top.size(); i++) {
+            final Leaderboard.Rank rank = top.get(i);
+            lines.append(i == 0 ? "" : "\n")
+                    .append(format("%d. %s --> %d", i + 1, Long.toUnsignedString(rank.snowflake()), rank.wallet()));
+        }
+        return echo(channelId, "%s", lines);
+    }
+
+    // amount is positive, as guaranteed by ArgMatcher.POSITIVE_LONG
+    private Mono<Void> stealCmd(long channelId, long snowflake, long amount) {
+        if (ledger.writeBehind()) {
+            // known users only, as the ledger would keep a delta for an unknown one until the next flush drops it
+            return wallets.wallet(snowflake)
+                    .doOnNext(wallet -> {
+                        wallets.adjust(snowflake, amount, ledger);
+                        leaderboard.adjust(snowflake, amount);
+                    })
+                    .then(echo(channelId, "stealing %d from the bank", amount));
+        }
+        // a single auto-committed statement, so the returned row is already visible to every reader
+        return repo.addToWallet(snowflake, amount)
+                .doOnNext(committed -> {
+                    wallets.update(committed);
+                    leaderboard.update(committed);
+                })
+                .doOnError(error -> wallets.invalidate(snowflake))
+                .then(echo(channelId, "stealing %d from the bank", amount));
+    }
+
+    private Mono<Object> defaultCmd() {
+        return Mono.empty();
     }
 
-    private static User updateWallet(User user, LongUnaryOperator updater) {
-        return user.updateWallet(updater);
+    private Mono<Void> echo(long channelId, String formatted, Object ... args) {
+        return outbound.submit(channelId, String.format(formatted, args), OutboundScheduler.Priority.INTERACTIVE);
     }
 
 }
\ No newline at end of file
@@ -2,13 +2,22 @@ package io.ignice.c17n;
 
 import discord4j.core.DiscordClient;
 import discord4j.core.DiscordClientBuilder;
+import io.ignice.c17n.command.CommandPipeline;
+import io.ignice.c17n.command.CommandTrigger;
+import io.ignice.c17n.command.Workload;
+import io.ignice.c17n.data.MeteredConnectionPool;
+import io.ignice.c17n.data.WalletLedger;
+import io.ignice.c17n.shard.GatewayProfile;
+import io.ignice.c17n.shard.Sharding;
 import io.ignice.c17n.util.SanityOps;
+import io.ignice.c17n.util.StatsLog;
+import io.r2dbc.spi.ConnectionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
-import org.springframework.transaction.reactive.TransactionalOperator;
 
+import java.time.Duration;
 import java.util.Arrays;
 
 public class Launcher {
@@ -48,6 +57,33 @@ public class Launcher {
         }
     }
 
+    // writes every pending wallet delta; safe to call more than once, as an empty ledger does not touch the database
+    private static void flush(WalletLedger ledger) {
+        ledger.dispose();
+        try {
+            log.info("Wrote {} users with pending wallet deltas, ledger: {}", ledger.flush().block(Duration.ofSeconds(30)), ledger.stats());
+        } catch (Throwable throwable) {
+            log.error("Failed to write {} users with pending wallet deltas.", ledger.stats().pending(), throwable);
+        }
+    }
+
+    private static void disconnect(Gateway gateway) {
+        try {
+            gateway.disconnect().block(Duration.ofSeconds(30));
+        } catch (Throwable throwable) {
+            log.error("Failed to disconnect from the gateway.", throwable);
+        }
+    }
+
+    // once flushed on the way out, the hook must not flush again after the context, and its database, is closed
+    private static void removeShutdownHook(Thread hook) {
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException e) {
+            // shutting down already, so the hook is running or about to
+        }
+    }
+
     public static void main(String[] args) {
         if (args.length != 1) {
             throw new IllegalArgumentException("The app token must be passed to c17n.");
@@ -56,9 +92,38 @@ public class Launcher {
         try (final ConfigurableApplicationContext config = new AnnotationConfigApplicationContext(Config.class)) {
             final DiscordClient client = DiscordClientBuilder.create(readAndTryEraseToken(args)).build();
             final AppRepository repository = config.getBean(AppRepository.class);
-            final TransactionalOperator txOperator = config.getBean(TransactionalOperator.class);
-            final Gateway gateway = new Gateway(client, repository, txOperator);
-            launcher.run(gateway);
+            final CommandTrigger trigger = config.getBean(CommandTrigger.class);
+            final CommandPipeline pipeline = config.getBean(CommandPipeline.class);
+            final Sharding sharding = config.getBean(Sharding.class);
+            final GatewayProfile profile = config.getBean(GatewayProfile.class);
+            final WalletLedger ledger = config.getBean(WalletLedger.class);
+            final Gateway gateway = new Gateway(client, repository, ledger, trigger, pipeline, sharding, profile);
+            config.getBean(StatsLog.class)
+                    .register("Commands", gateway::commandStats)
+                    .register("Database pipeline", () -> gateway.pipelineStats(Workload.DATABASE))
+                    .register("Compute pipeline", () -> gateway.pipelineStats(Workload.COMPUTE))
+                    .register("Outbound", gateway::outboundStats)
+                    .register("Wallet cache", gateway::walletStats)
+                    .register("Wallet ledger", gateway::ledgerStats)
+                    .register("Shards", gateway::shardStats)
+                    .register("Discarded dispatches", gateway::discardedDispatches);
+            final ConnectionFactory connections = config.getBean(ConnectionFactory.class);
+            if (connections instanceof MeteredConnectionPool pool) {
+                log.info("Opened {} pooled connections", pool.warmup().block());
+            }
+            // a terminated process never returns from run, so a hook disconnects, which stops new deltas, and flushes
+            final Thread hook = new Thread(() -> {
+                disconnect(gateway);
+                flush(ledger);
+            }, "c17n-ledger-flush");
+            Runtime.getRuntime().addShutdownHook(hook);
+            try {
+                launcher.run(gateway);
+            } finally {
+                flush(ledger);
+                removeShutdownHook(hook);
+            }
+            config.getBean(StatsLog.class).report();
         } catch (Throwable throwable) {
             log.error("A fatal error occurred on the main thread.", throwable);
         }
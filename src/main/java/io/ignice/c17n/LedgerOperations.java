@@ -0,0 +1,51 @@
+package io.ignice.c17n;
+
+import io.ignice.c17n.data.User;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Wallet changes kept as an append-only {@code wallet_ledger}, which {@code users.wallet} snapshots.
+ * <p>
+ * A user's balance is its wallet plus every ledger entry no compaction has folded in yet, those whose
+ * {@code wallet_ledger.compaction} is null. Appending never locks a user's row, and the entries stay behind as an
+ * audit trail once {@link #compactLedger()} has folded them in, which keeps the tail a read sums short.
+ *
+ * @see LedgerOperationsImpl
+ * @see io.ignice.c17n.data.LedgerCompactor
+ */
+public interface LedgerOperations {
+
+    /**
+     * Appends one entry per {@code i}, adding {@code deltas[i]} to the balance of {@code snowflakes[i]}, with a
+     * single multi-row insert. Entries of unknown users are kept but never counted.
+     *
+     * @param deltas one amount per snowflake, none of them negative
+     * @return how many entries were appended
+     */
+    Mono<Integer> appendToLedger(long[] snowflakes, long[] deltas);
+
+    /**
+     * Reads the user with {@code snowflake} with its balance as the wallet. The balance saturates at
+     * {@link Long#MAX_VALUE}, like {@link WalletOperations#addToWallets(long[], long[])}, which with no negative
+     * entries gives the same balance however they are split across {@link #compactLedger() compactions}.
+     *
+     * @return the user, or empty if there is no such user
+     */
+    Mono<User> findUserWithLedger(long snowflake);
+
+    /**
+     * Reads every user with its balance as the wallet, like {@link #findUserWithLedger(long)}.
+     */
+    Flux<User> findAllWithLedger();
+
+    /**
+     * Marks every ledger entry visible and not folded yet with a new compaction id, then folds the marked entries into
+     * the wallets of their users, bumping the versions. Entries which commit meanwhile stay unmarked, whatever their
+     * ids, and are folded by the next compaction. Must run in a transaction, so that the marks and the wallets commit
+     * together.
+     *
+     * @return how many users were compacted
+     */
+    Mono<Integer> compactLedger();
+}
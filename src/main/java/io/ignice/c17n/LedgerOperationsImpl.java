@@ -0,0 +1,105 @@
+package io.ignice.c17n;
+
+import io.ignice.c17n.data.User;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Spring Data fragment implementing {@link LedgerOperations} for {@link AppRepository}.
+ */
+class LedgerOperationsImpl implements LedgerOperations {
+
+    // the sum is numeric on Postgres and decimal on H2, so the clamps apply before narrowing back to BIGINT
+    private static final String BALANCE = "CAST(LEAST(GREATEST(wallet + COALESCE((SELECT SUM(l.delta) FROM wallet_ledger l "
+            + "WHERE l.snowflake = users.snowflake AND l.compaction %s), 0), 0), 9223372036854775807) AS BIGINT)";
+
+    private static final String FIND_ALL_WITH_LEDGER = "SELECT id, snowflake, " + String.format(BALANCE, "IS NULL") + " AS wallet, "
+            + "created_at, updated_at, version FROM users";
+
+    private static final String FIND_USER_WITH_LEDGER = FIND_ALL_WITH_LEDGER + " WHERE snowflake = :snowflake";
+
+    private static final String NEXT_COMPACTION = "SELECT COALESCE(MAX(compaction), 0) + 1 FROM wallet_ledger";
+
+    // a transaction only sees committed entries, so one committing meanwhile keeps its null for the next compaction
+    private static final String MARK_LEDGER = "UPDATE wallet_ledger SET compaction = :compaction WHERE compaction IS NULL";
+
+    private static final String COMPACT_LEDGER = "UPDATE users SET "
+            + "wallet = " + String.format(BALANCE, "= :compaction") + ", "
+            + "version = version + 1 "
+            + "WHERE snowflake IN (SELECT snowflake FROM wallet_ledger WHERE compaction = :compaction)";
+
+    private final R2dbcEntityTemplate template;
+
+    LedgerOperationsImpl(R2dbcEntityTemplate template) {
+        this.template = template;
+    }
+
+    @Override
+    public Mono<Integer> appendToLedger(long[] snowflakes, long[] deltas) {
+        if (snowflakes.length != deltas.length) {
+            return Mono.error(new IllegalArgumentException(String.format("deltas.length (= %d) must equal snowflakes.length (= %d)",
+                    deltas.length, snowflakes.length)));
+        }
+        for (long delta : deltas) {
+            if (delta < 0) {
+                return Mono.error(new IllegalArgumentException(String.format("delta (= %d) must not be negative", delta)));
+            }
+        }
+        if (snowflakes.length == 0) {
+            return Mono.just(0);
+        }
+        final StringBuilder sql = new StringBuilder("INSERT INTO wallet_ledger (snowflake, delta) VALUES ");
+        for (int i = 0; i < snowflakes.length; i++) {
+            sql.append(i == 0 ? "" : ", ").append("($").append(2 * i + 1).append(", $").append(2 * i + 2).append(')');
+        }
+        return template.getDatabaseClient().inConnection(connection -> {
+            final Statement statement = connection.createStatement(sql.toString());
+            for (int i = 0; i < snowflakes.length; i++) {
+                statement.bind(2 * i, snowflakes[i]).bind(2 * i + 1, deltas[i]);
+            }
+            return Flux.from(statement.execute())
+                    .concatMap(Result::getRowsUpdated)
+                    .reduce(0, Integer::sum);
+        });
+    }
+
+    @Override
+    public Mono<User> findUserWithLedger(long snowflake) {
+        return template.getDatabaseClient()
+                .sql(FIND_USER_WITH_LEDGER)
+                .bind("snowflake", snowflake)
+                .map((row, metadata) -> template.getConverter().read(User.class, row, metadata))
+                .one();
+    }
+
+    @Override
+    public Flux<User> findAllWithLedger() {
+        return template.getDatabaseClient()
+                .sql(FIND_ALL_WITH_LEDGER)
+                .map((row, metadata) -> template.getConverter().read(User.class, row, metadata))
+                .all();
+    }
+
+    @Override
+    public Mono<Integer> compactLedger() {
+        return template.getDatabaseClient()
+                .sql(NEXT_COMPACTION)
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .flatMap(compaction -> template.getDatabaseClient()
+                        .sql(MARK_LEDGER)
+                        .bind("compaction", compaction)
+                        .fetch()
+                        .rowsUpdated()
+                        .flatMap(marked -> marked == 0
+                                ? Mono.just(0)
+                                : template.getDatabaseClient()
+                                        .sql(COMPACT_LEDGER)
+                                        .bind("compaction", compaction)
+                                        .fetch()
+                                        .rowsUpdated()));
+    }
+}
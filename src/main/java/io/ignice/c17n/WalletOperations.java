@@ -0,0 +1,33 @@
+package io.ignice.c17n;
+
+import io.ignice.c17n.data.User;
+import reactor.core.publisher.Mono;
+
+/**
+ * Wallet updates which run as a single statement, so they need neither a prior read nor an optimistic lock.
+ *
+ * @see WalletOperationsImpl
+ */
+public interface WalletOperations {
+
+    /**
+     * Atomically adds {@code delta} to the wallet of the user with {@code snowflake} and bumps its version. Deposits
+     * saturate at {@link Long#MAX_VALUE}, like {@link reactor.core.publisher.Operators#addCap(long, long)}.
+     *
+     * @param delta any amount but {@link Long#MIN_VALUE}; negative amounts are withdrawals
+     * @return the updated user, or empty if there is no such user or a withdrawal would leave the wallet negative
+     */
+    Mono<User> addToWallet(long snowflake, long delta);
+
+    /**
+     * Adds {@code deltas[i]} to the wallet of the user with {@code snowflakes[i]} for every {@code i}, as one batch
+     * of statements sent in a single round trip. Deposits saturate like {@link #addToWallet(long, long)}, but a
+     * withdrawal larger than the wallet leaves it at zero rather than being skipped. Unknown users are ignored.
+     * <p>
+     * Each row is updated atomically; the batch as a whole only is when run in a transaction.
+     *
+     * @param deltas one amount per snowflake, none of them {@link Long#MIN_VALUE}
+     * @return how many users were updated
+     */
+    Mono<Integer> addToWallets(long[] snowflakes, long[] deltas);
+}
@@ -0,0 +1,103 @@
+package io.ignice.c17n;
+
+import io.ignice.c17n.data.User;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+
+/**
+ * Spring Data fragment implementing {@link WalletOperations} for {@link AppRepository}.
+ * <p>
+ * Postgres returns the updated row with {@code UPDATE ... RETURNING}. H2 has no {@code RETURNING} and its data
+ * change delta tables report the pre-update row over R2DBC, so there the row is re-read after a successful update.
+ */
+class WalletOperationsImpl implements WalletOperations {
+
+    // GREATEST/LEAST keep both bounds from overflowing whatever the sign of the delta; the WHERE clause turns a
+    // withdrawal past zero into no row at all, rather than a non_negative_wallet violation. The casts stop H2 from
+    // typing the bound delta after the INT literal it is compared with
+    private static final String ADD_TO_WALLET = "UPDATE users SET "
+            + "wallet = CASE WHEN wallet > 9223372036854775807 - GREATEST(CAST(:delta AS BIGINT), 0) THEN 9223372036854775807 "
+            + "ELSE wallet + :delta END, "
+            + "version = version + 1 "
+            + "WHERE snowflake = :snowflake AND wallet >= -LEAST(CAST(:delta AS BIGINT), 0)";
+
+    // $1 is the delta and $2 the snowflake; a withdrawal past zero floors the wallet, as the batch cannot skip a row
+    private static final String ADD_TO_WALLETS = "UPDATE users SET "
+            + "wallet = CASE WHEN wallet > 9223372036854775807 - GREATEST(CAST($1 AS BIGINT), 0) THEN 9223372036854775807 "
+            + "WHEN wallet < -LEAST(CAST($1 AS BIGINT), 0) THEN 0 "
+            + "ELSE wallet + $1 END, "
+            + "version = version + 1 "
+            + "WHERE snowflake = $2";
+
+    private static final String SELECT_BY_SNOWFLAKE = "SELECT * FROM users WHERE snowflake = :snowflake";
+
+    private final R2dbcEntityTemplate template;
+    private final boolean returning;
+
+    WalletOperationsImpl(R2dbcEntityTemplate template) {
+        this.template = template;
+        final String database = template.getDatabaseClient().getConnectionFactory().getMetadata().getName();
+        this.returning = !database.toUpperCase(Locale.ROOT).contains("H2");
+    }
+
+    @Override
+    public Mono<User> addToWallet(long snowflake, long delta) {
+        if (delta == Long.MIN_VALUE) {
+            return Mono.error(new IllegalArgumentException(String.format("delta (= %d) must be greater than Long.MIN_VALUE", delta)));
+        }
+        if (returning) {
+            return template.getDatabaseClient()
+                    .sql(ADD_TO_WALLET + " RETURNING *")
+                    .bind("delta", delta)
+                    .bind("snowflake", snowflake)
+                    .map((row, metadata) -> template.getConverter().read(User.class, row, metadata))
+                    .one();
+        }
+        return template.getDatabaseClient()
+                .sql(ADD_TO_WALLET)
+                .bind("delta", delta)
+                .bind("snowflake", snowflake)
+                .fetch()
+                .rowsUpdated()
+                .filter(updated -> updated > 0)
+                .flatMap(updated -> template.getDatabaseClient()
+                        .sql(SELECT_BY_SNOWFLAKE)
+                        .bind("snowflake", snowflake)
+                        .map((row, metadata) -> template.getConverter().read(User.class, row, metadata))
+                        .one());
+    }
+
+    @Override
+    public Mono<Integer> addToWallets(long[] snowflakes, long[] deltas) {
+        if (snowflakes.length != deltas.length) {
+            return Mono.error(new IllegalArgumentException(String.format("deltas.length (= %d) must equal snowflakes.length (= %d)",
+                    deltas.length, snowflakes.length)));
+        }
+        for (long delta : deltas) {
+            if (delta == Long.MIN_VALUE) {
+                return Mono.error(new IllegalArgumentException(String.format("delta (= %d) must be greater than Long.MIN_VALUE", delta)));
+            }
+        }
+        if (snowflakes.length == 0) {
+            return Mono.just(0);
+        }
+        // one statement with a binding per row, which the driver sends as a single batch
+        return template.getDatabaseClient().inConnection(connection -> {
+            final Statement statement = connection.createStatement(ADD_TO_WALLETS);
+            for (int i = 0; i < snowflakes.length; i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+                statement.bind("$1", deltas[i]).bind("$2", snowflakes[i]);
+            }
+            return Flux.from(statement.execute())
+                    .concatMap(Result::getRowsUpdated)
+                    .reduce(0, Integer::sum);
+        });
+    }
+}
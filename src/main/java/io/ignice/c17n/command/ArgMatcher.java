@@ -0,0 +1,120 @@
+package io.ignice.c17n.command;
+
+/**
+ * Typed command arguments. Every type parses straight into a {@code long}, so an {@link Invocation} carries its
+ * arguments without boxing or substrings. Optional arguments may only come last, and are 0 when left out.
+ */
+public enum ArgMatcher {
+
+    /**
+     * A decimal number in {@code [1, Long.MAX_VALUE]}.
+     */
+    POSITIVE_LONG("amount", false) {
+        @Override
+        boolean parse(CharSequence s, int from, int to, long[] out, int index) {
+            final long value = parseDecimal(s, from, to, false);
+            if (value <= 0) return false;
+            out[index] = value;
+            return true;
+        }
+    },
+
+    /**
+     * A user mention, i.e. {@code <@snowflake>} or {@code <@!snowflake>}.
+     */
+    USER_MENTION("@user", false) {
+        @Override
+        boolean parse(CharSequence s, int from, int to, long[] out, int index) {
+            if (to - from < 4 || s.charAt(from) != '<' || s.charAt(from + 1) != '@' || s.charAt(to - 1) != '>') {
+                return false;
+            }
+            final int start = s.charAt(from + 2) == '!' ? from + 3 : from + 2;
+            return SNOWFLAKE.parse(s, start, to - 1, out, index);
+        }
+    },
+
+    /**
+     * A raw Discord snowflake, an unsigned 64-bit decimal number.
+     */
+    SNOWFLAKE("id", false) {
+        @Override
+        boolean parse(CharSequence s, int from, int to, long[] out, int index) {
+            // an unsigned long has at most 20 digits; anything above 2^64 - 1 wraps, so reject by length first
+            if (to - from > 20) return false;
+            final long high = parseDecimal(s, from, Math.max(from, to - 1), true);
+            final int last = to > from ? digit(s.charAt(to - 1)) : -1;
+            if (high == INVALID || last < 0 || Long.compareUnsigned(high, UNSIGNED_HIGH_MAX) > 0
+                    || (high == UNSIGNED_HIGH_MAX && last > UNSIGNED_LAST_MAX)) {
+                return false;
+            }
+            out[index] = high * 10 + last;
+            return true;
+        }
+    },
+
+    /**
+     * An optional number of entries in {@code [1, Long.MAX_VALUE]}.
+     */
+    COUNT("count", true) {
+        @Override
+        boolean parse(CharSequence s, int from, int to, long[] out, int index) {
+            return POSITIVE_LONG.parse(s, from, to, out, index);
+        }
+    },
+
+    /**
+     * An optional keyset cursor, i.e. a non-negative decimal number handed out with the previous page.
+     */
+    PAGE("page", true) {
+        @Override
+        boolean parse(CharSequence s, int from, int to, long[] out, int index) {
+            final long value = parseDecimal(s, from, to, false);
+            if (value < 0) return false;
+            out[index] = value;
+            return true;
+        }
+    };
+
+    private static final long INVALID = -1;
+    private static final long UNSIGNED_HIGH_MAX = Long.divideUnsigned(-1L, 10);
+    private static final int UNSIGNED_LAST_MAX = (int) Long.remainderUnsigned(-1L, 10);
+
+    private final String usage;
+    private final boolean optional;
+
+    ArgMatcher(String usage, boolean optional) {
+        this.usage = usage;
+        this.optional = optional;
+    }
+
+    public String usage() {
+        return usage;
+    }
+
+    public boolean optional() {
+        return optional;
+    }
+
+    /**
+     * Parses {@code s[from, to)} into {@code out[index]}.
+     *
+     * @return whether the characters were valid for this type; {@code out} is left untouched otherwise
+     */
+    abstract boolean parse(CharSequence s, int from, int to, long[] out, int index);
+
+    // non-negative decimal without sign, or INVALID; an empty range is 0 only if allowEmpty
+    private static long parseDecimal(CharSequence s, int from, int to, boolean allowEmpty) {
+        if (from == to) return allowEmpty ? 0 : INVALID;
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            final int digit = digit(s.charAt(i));
+            if (digit < 0 || value > (Long.MAX_VALUE - digit) / 10) return INVALID;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int digit(char c) {
+        return c >= '0' && c <= '9' ? c - '0' : -1;
+    }
+}
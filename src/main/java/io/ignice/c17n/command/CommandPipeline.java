@@ -0,0 +1,151 @@
+package io.ignice.c17n.command;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs command handlers off the gateway's event threads, with bounded concurrency and bounded queues per
+ * {@link Workload}.
+ * <p>
+ * {@link Workload#DATABASE} handlers are subscribed on a bounded elastic scheduler, {@link Workload#COMPUTE}
+ * handlers on a parallel one, and {@link Workload#INLINE} handlers are not scheduled at all. Once a workload has
+ * {@link Limits#concurrency()} handlers running and {@link Limits#queued()} waiting, further ones are shed with a
+ * {@link RejectedExecutionException}, so a slow query backs up its own queue rather than the shard's event loop.
+ */
+public final class CommandPipeline implements Disposable {
+
+    public static final Limits DEFAULT_DATABASE_LIMITS = new Limits(16, 256);
+    public static final Limits DEFAULT_COMPUTE_LIMITS = new Limits(Runtime.getRuntime().availableProcessors(), 64);
+
+    private final Map<Workload, Lane> lanes = new EnumMap<>(Workload.class);
+
+    public CommandPipeline() {
+        this(DEFAULT_DATABASE_LIMITS, DEFAULT_COMPUTE_LIMITS);
+    }
+
+    public CommandPipeline(@NonNull Limits database, @NonNull Limits compute) {
+        this(database, Schedulers.newBoundedElastic(database.concurrency(), database.queued(), "c17n-db", 60, true),
+                compute, Schedulers.newParallel("c17n-compute", compute.concurrency(), true));
+    }
+
+    public CommandPipeline(@NonNull Limits database, @NonNull Scheduler databaseScheduler,
+                           @NonNull Limits compute, @NonNull Scheduler computeScheduler) {
+        lanes.put(Workload.DATABASE, new Lane(SanityOps.requireNonNull(database, "database"),
+                SanityOps.requireNonNull(databaseScheduler, "databaseScheduler")));
+        lanes.put(Workload.COMPUTE, new Lane(SanityOps.requireNonNull(compute, "compute"),
+                SanityOps.requireNonNull(computeScheduler, "computeScheduler")));
+    }
+
+    /**
+     * Runs {@code handler} in the lane of {@code workload} when subscribed to.
+     *
+     * @return completes when the handler does, or errors with a {@link RejectedExecutionException} if the lane is full
+     */
+    public Mono<Void> submit(@NonNull Workload workload, @NonNull Mono<Void> handler) {
+        SanityOps.requireNonNull(workload, "workload");
+        SanityOps.requireNonNull(handler, "handler");
+        final Lane lane = lanes.get(workload);
+        return lane == null ? handler : Mono.create(sink -> lane.offer(new Task(handler, sink)));
+    }
+
+    public Stats stats(@NonNull Workload workload) {
+        final Lane lane = lanes.get(SanityOps.requireNonNull(workload, "workload"));
+        return lane == null ? new Stats(0, 0, 0, 0, 0) : lane.stats();
+    }
+
+    @Override
+    public void dispose() {
+        lanes.values().forEach(lane -> lane.scheduler.dispose());
+    }
+
+    /**
+     * @param concurrency handlers that may run at once
+     * @param queued      handlers that may wait for one of those slots
+     */
+    public record Limits(int concurrency, int queued) {
+
+        public Limits {
+            SanityOps.requirePositive(concurrency, "concurrency");
+            SanityOps.requireNonNegative(queued, "queued");
+        }
+    }
+
+    public record Stats(long submitted, long completed, long shed, int running, int queued) {
+    }
+
+    private record Task(Mono<Void> handler, MonoSink<Void> sink) {
+    }
+
+    private static final class Lane {
+
+        private final Limits limits;
+        private final Scheduler scheduler;
+        private final Deque<Task> queue = new ArrayDeque<>();
+        private int running;
+
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder shed = new LongAdder();
+
+        private Lane(Limits limits, Scheduler scheduler) {
+            this.limits = limits;
+            this.scheduler = scheduler;
+        }
+
+        private void offer(Task task) {
+            submitted.increment();
+            synchronized (this) {
+                if (running >= limits.concurrency()) {
+                    if (queue.size() < limits.queued()) {
+                        queue.addLast(task);
+                        return;
+                    }
+                    shed.increment();
+                    task.sink.error(new RejectedExecutionException(
+                            String.format("queue (= %d handlers) is full", limits.queued())));
+                    return;
+                }
+                running++;
+            }
+            run(task);
+        }
+
+        private void run(Task task) {
+            task.handler
+                    .subscribeOn(scheduler)
+                    .doFinally(signal -> {
+                        completed.increment();
+                        next();
+                    })
+                    .subscribe(null, task.sink::error, task.sink::success);
+        }
+
+        private void next() {
+            final Task task;
+            synchronized (this) {
+                task = queue.pollFirst();
+                if (task == null) {
+                    running--;
+                    return;
+                }
+            }
+            run(task);
+        }
+
+        private synchronized Stats stats() {
+            return new Stats(submitted.sum(), completed.sum(), shed.sum(), running, queue.size());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package io.ignice.c17n.command;
+
+import io.ignice.c17n.util.StringOps;
+import lombok.NonNull;
+import reactor.util.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Parses message content into {@link Invocation}s.
+ * <p>
+ * The command names are compiled into a {@link CommandTrie} once, and each message is read in a single pass: the
+ * first word is looked up in the trie without being copied, then every argument is parsed in place by its
+ * {@link ArgMatcher}. Malformed arguments are reported before any handler runs. Messages which are not addressed
+ * to the bot according to its {@link CommandTrigger} are dropped before any of that.
+ */
+public final class CommandRegistry {
+
+    private final CommandTrie<Commands> trie;
+    private final CommandTrigger trigger;
+
+    private final LongAdder ignored = new LongAdder();
+    private final LongAdder unknown = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final LongAdder parsed = new LongAdder();
+
+    public CommandRegistry() {
+        this(CommandTrigger.none());
+    }
+
+    public CommandRegistry(@NonNull CommandTrigger trigger) {
+        this.trigger = trigger;
+        this.trie = CommandTrie.of(Arrays.stream(Commands.values())
+                .collect(Collectors.toMap(Commands::command, Function.identity())));
+    }
+
+    public CommandTrigger trigger() {
+        return trigger;
+    }
+
+    /**
+     * @return the invocation, possibly {@link Invocation#isValid() invalid}, or null if {@code content} is not
+     * addressed to the bot or its first word is not a command
+     */
+    @Nullable
+    public Invocation parse(@NonNull CharSequence content) {
+        final int start = trigger.commandStart(content);
+        if (start < 0) {
+            ignored.increment();
+            return null;
+        }
+        int from = StringOps.skipWhitespace(content, start);
+        int to = StringOps.tokenEnd(content, from);
+        final Commands command = trie.find(content, from, to);
+        if (command == null || from == to) {
+            unknown.increment();
+            return null;
+        }
+        final long[] args = new long[command.args().size()];
+        for (int i = 0; i < args.length; i++) {
+            from = StringOps.skipWhitespace(content, to);
+            to = StringOps.tokenEnd(content, from);
+            final ArgMatcher matcher = command.args().get(i);
+            if (from == to && matcher.optional()) {
+                break;
+            }
+            if (from == to) {
+                invalid.increment();
+                return new Invocation(command, args, String.format("missing <%s>, usage: %s", matcher.usage(), command.usage()));
+            }
+            if (!matcher.parse(content, from, to, args, i)) {
+                invalid.increment();
+                return new Invocation(command, args, String.format("invalid <%s>, usage: %s", matcher.usage(), command.usage()));
+            }
+        }
+        parsed.increment();
+        return new Invocation(command, args, null);
+    }
+
+    public Stats stats() {
+        return new Stats(ignored.sum(), unknown.sum(), invalid.sum(), parsed.sum());
+    }
+
+    /**
+     * @param ignored messages dropped by the {@link CommandTrigger} without being tokenized
+     * @param unknown triggered messages whose first word is not a command
+     * @param invalid commands with missing or malformed arguments
+     * @param parsed  valid invocations
+     */
+    public record Stats(long ignored, long unknown, long invalid, long parsed) {
+    }
+}
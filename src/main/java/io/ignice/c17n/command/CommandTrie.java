@@ -0,0 +1,93 @@
+package io.ignice.c17n.command;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+import reactor.util.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable prefix trie from command names to values.
+ * <p>
+ * Each node keeps its edges as a sorted {@code char[]}, so a lookup costs one binary search over at most a few
+ * dozen characters per character of the name, however many commands there are.
+ */
+public final class CommandTrie<T> {
+
+    private final Node<T> root;
+
+    private CommandTrie(Node<T> root) {
+        this.root = root;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a name is empty
+     */
+    public static <T> CommandTrie<T> of(@NonNull Map<String, T> commands) {
+        SanityOps.requireNonNull(commands, "commands");
+        final Node<T> root = new Node<>();
+        commands.forEach((name, value) -> {
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("command names must not be empty");
+            }
+            Node<T> node = root;
+            for (int i = 0; i < name.length(); i++) {
+                node = node.child(name.charAt(i));
+            }
+            node.value = value;
+        });
+        return new CommandTrie<>(root);
+    }
+
+    /**
+     * @return the value whose name is exactly {@code s[from, to)}, or null
+     */
+    @Nullable
+    public T find(@NonNull CharSequence s, int from, int to) {
+        Node<T> node = root;
+        for (int i = from; i < to && node != null; i++) {
+            node = node.next(s.charAt(i));
+        }
+        return node == null ? null : node.value;
+    }
+
+    private static final class Node<T> {
+
+        private char[] keys = new char[0];
+        @SuppressWarnings("unchecked")
+        private Node<T>[] children = new Node[0];
+        private T value;
+
+        private Node<T> next(char c) {
+            final int i = Arrays.binarySearch(keys, c);
+            return i < 0 ? null : children[i];
+        }
+
+        // build time only
+        private Node<T> child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i < 0) {
+                i = -i - 1;
+                keys = insert(keys, i, c);
+                children = insert(children, i, new Node<>());
+            }
+            return children[i];
+        }
+
+        private static char[] insert(char[] array, int i, char c) {
+            final char[] result = new char[array.length + 1];
+            System.arraycopy(array, 0, result, 0, i);
+            result[i] = c;
+            System.arraycopy(array, i, result, i + 1, array.length - i);
+            return result;
+        }
+
+        private static <T> Node<T>[] insert(Node<T>[] array, int i, Node<T> node) {
+            final Node<T>[] result = Arrays.copyOf(array, array.length + 1);
+            System.arraycopy(array, i, result, i + 1, array.length - i);
+            result[i] = node;
+            return result;
+        }
+    }
+}
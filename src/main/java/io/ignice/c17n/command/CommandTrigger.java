@@ -0,0 +1,115 @@
+package io.ignice.c17n.command;
+
+import io.ignice.c17n.util.SanityOps;
+import io.ignice.c17n.util.StringOps;
+import lombok.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Decides from the first few characters of a message whether it is addressed to the bot at all.
+ * <p>
+ * Most traffic is chatter, so {@link #commandStart(CharSequence)} compares characters in place and returns before
+ * anything is tokenized or allocated.
+ */
+public final class CommandTrigger {
+
+    public enum Mode {
+        /**
+         * Every message is parsed as a command.
+         */
+        NONE,
+        /**
+         * Commands start with the configured prefix, e.g. {@code !bal}.
+         */
+        PREFIX,
+        /**
+         * Commands start with a mention of the bot, e.g. {@code @c17n bal}.
+         */
+        MENTION,
+        PREFIX_OR_MENTION;
+
+        public static Mode of(@NonNull String name) {
+            return valueOf(name.strip().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public static final String DEFAULT_PREFIX = "!";
+
+    private final Mode mode;
+    private final String prefix;
+
+    // the bot's own snowflake, unknown (and so never mentioned) until the gateway is ready
+    private volatile String mention;
+
+    public CommandTrigger(@NonNull Mode mode, @NonNull String prefix) {
+        this.mode = SanityOps.requireNonNull(mode, "mode");
+        this.prefix = SanityOps.requireNonNull(prefix, "prefix");
+        if ((mode == Mode.PREFIX || mode == Mode.PREFIX_OR_MENTION) && (prefix.isEmpty() || prefix.isBlank())) {
+            throw new IllegalArgumentException(String.format("prefix (= \"%s\") must not be blank in mode %s", prefix, mode));
+        }
+    }
+
+    public static CommandTrigger none() {
+        return new CommandTrigger(Mode.NONE, "");
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    public String prefix() {
+        return prefix;
+    }
+
+    /**
+     * Enables mentions once the bot knows its own snowflake.
+     */
+    public void self(long snowflake) {
+        this.mention = Long.toUnsignedString(snowflake);
+    }
+
+    /**
+     * @return the index at which the command name starts, or -1 if {@code content} is not addressed to the bot
+     */
+    public int commandStart(@NonNull CharSequence content) {
+        return switch (mode) {
+            case NONE -> 0;
+            case PREFIX -> afterPrefix(content);
+            case MENTION -> afterMention(content);
+            case PREFIX_OR_MENTION -> {
+                final int start = afterPrefix(content);
+                yield start >= 0 ? start : afterMention(content);
+            }
+        };
+    }
+
+    private int afterPrefix(CharSequence content) {
+        final int length = prefix.length();
+        if (content.length() < length) return -1;
+        for (int i = 0; i < length; i++) {
+            if (content.charAt(i) != prefix.charAt(i)) return -1;
+        }
+        return length;
+    }
+
+    // <@snowflake> or <@!snowflake>; like a prefix, it may be followed by whitespace but need not be, e.g. <@!5>ping
+    private int afterMention(CharSequence content) {
+        final String mention = this.mention;
+        if (mention == null || content.length() < 4 || content.charAt(0) != '<' || content.charAt(1) != '@') {
+            return -1;
+        }
+        final int start = content.charAt(2) == '!' ? 3 : 2;
+        final int end = start + mention.length();
+        if (content.length() <= end || content.charAt(end) != '>') return -1;
+        for (int i = 0; i < mention.length(); i++) {
+            if (content.charAt(start + i) != mention.charAt(i)) return -1;
+        }
+        return StringOps.skipWhitespace(content, end + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "CommandTrigger[mode=" + mode + ", prefix=" + prefix + ']';
+    }
+}
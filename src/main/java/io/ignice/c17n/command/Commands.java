@@ -0,0 +1,54 @@
+package io.ignice.c17n.command;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Every command the bot answers to, with the types of its arguments.
+ *
+ * @see CommandRegistry
+ */
+public enum Commands {
+    BAL("bal", Workload.DATABASE, ArgMatcher.USER_MENTION),
+    LIST("list", Workload.DATABASE, ArgMatcher.PAGE),
+    PING("ping", Workload.INLINE),
+    HELP("help", Workload.INLINE),
+    TOP("top", Workload.INLINE, ArgMatcher.COUNT),
+    STEAL("steal", Workload.DATABASE, ArgMatcher.USER_MENTION, ArgMatcher.POSITIVE_LONG);
+
+    private final String command;
+    private final Workload workload;
+    private final List<ArgMatcher> args;
+
+    Commands(String command, Workload workload, ArgMatcher... args) {
+        this.command = command;
+        this.workload = workload;
+        this.args = List.of(args);
+        for (int i = 1; i < args.length; i++) {
+            if (args[i - 1].optional() && !args[i].optional()) {
+                throw new IllegalArgumentException(String.format("%s: optional arguments must come last", command));
+            }
+        }
+    }
+
+    public String command() {
+        return command;
+    }
+
+    public Workload workload() {
+        return workload;
+    }
+
+    public List<ArgMatcher> args() {
+        return args;
+    }
+
+    /**
+     * @return e.g. {@code steal <@user> <amount>} or {@code list [page]}
+     */
+    public String usage() {
+        return args.stream()
+                .map(arg -> arg.optional() ? " [" + arg.usage() + "]" : " <" + arg.usage() + ">")
+                .collect(Collectors.joining("", command, ""));
+    }
+}
@@ -0,0 +1,42 @@
+package io.ignice.c17n.command;
+
+import lombok.NonNull;
+import reactor.util.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A parsed command.
+ *
+ * @param command the command that was named
+ * @param args    the parsed arguments, one per {@link Commands#args()}
+ * @param error   why the arguments were rejected, or null if they are valid
+ */
+public record Invocation(@NonNull Commands command, @NonNull long[] args, @Nullable String error) {
+
+    public boolean isValid() {
+        return error == null;
+    }
+
+    public long arg(int i) {
+        return args[i];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Invocation that)) return false;
+        return command == that.command && Arrays.equals(args, that.args) && Objects.equals(error, that.error);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * command.hashCode() + Arrays.hashCode(args)) + Objects.hashCode(error);
+    }
+
+    @Override
+    public String toString() {
+        return "Invocation[command=" + command + ", args=" + Arrays.toString(args) + ", error=" + error + ']';
+    }
+}
@@ -0,0 +1,19 @@
+package io.ignice.c17n.command;
+
+/**
+ * What a command spends its time on, which decides where {@link CommandPipeline} runs it.
+ */
+public enum Workload {
+    /**
+     * Answers from memory, so it runs right away on the event thread.
+     */
+    INLINE,
+    /**
+     * Waits on Postgres.
+     */
+    DATABASE,
+    /**
+     * Keeps a core busy, e.g. rendering an image.
+     */
+    COMPUTE
+}
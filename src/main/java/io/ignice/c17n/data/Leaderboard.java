@@ -0,0 +1,115 @@
+package io.ignice.c17n.data;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Every user's wallet, ranked in memory.
+ * <p>
+ * Ranks live in a skip list ordered by wallet, so {@link #top(int)} costs O(log n + k) for the k users it returns,
+ * and {@link #update(User)} costs O(log n). Like {@link WalletCache}, it must be told about every committed wallet
+ * change, and ignores users older than the version it already has.
+ * <p>
+ * Reads do not lock: a user whose wallet changes while {@link #top(int)} runs may be missing from that one result.
+ */
+public final class Leaderboard {
+
+    private static final Comparator<Rank> ORDER = Comparator.comparingLong(Rank::wallet).reversed()
+            .thenComparing(Rank::snowflake, Long::compareUnsigned);
+
+    private final NavigableSet<Rank> ranks = new ConcurrentSkipListSet<>(ORDER);
+    // guarded by itself for writes
+    private final Map<Long, Standing> standings = new ConcurrentHashMap<>();
+
+    /**
+     * @param snowflake the user's Discord snowflake
+     * @param wallet    the user's committed wallet
+     */
+    public record Rank(long snowflake, long wallet) {
+    }
+
+    private record Standing(Rank rank, long version) {
+    }
+
+    /**
+     * Ranks every user emitted by {@code users}, e.g. a full table scan at startup.
+     */
+    public Mono<Void> seed(@NonNull Flux<User> users) {
+        SanityOps.requireNonNull(users, "users");
+        return users.doOnNext(this::update).then();
+    }
+
+    /**
+     * Re-ranks {@code committed}'s snowflake, unless a newer version is already ranked.
+     */
+    public void update(@NonNull User committed) {
+        SanityOps.requireNonNull(committed, "committed");
+        final long snowflake = committed.snowflake().asLong();
+        final Long version = committed.version();
+        final Standing next = new Standing(new Rank(snowflake, committed.wallet()), version == null ? 0 : version);
+        synchronized (standings) {
+            final Standing previous = standings.get(snowflake);
+            if (previous != null && previous.version > next.version) {
+                return;
+            }
+            standings.put(snowflake, next);
+            if (previous != null) {
+                ranks.remove(previous.rank);
+            }
+            ranks.add(next.rank);
+        }
+    }
+
+    /**
+     * Re-ranks {@code snowflake} by a delta recorded in a {@link WalletLedger}, if it is ranked.
+     */
+    public void adjust(long snowflake, long delta) {
+        synchronized (standings) {
+            final Standing previous = standings.get(snowflake);
+            if (previous == null) {
+                return;
+            }
+            final Standing next = new Standing(new Rank(snowflake, WalletLedger.merge(previous.rank.wallet(), delta)), previous.version);
+            standings.put(snowflake, next);
+            ranks.remove(previous.rank);
+            ranks.add(next.rank);
+        }
+    }
+
+    public void remove(long snowflake) {
+        synchronized (standings) {
+            final Standing previous = standings.remove(snowflake);
+            if (previous != null) {
+                ranks.remove(previous.rank);
+            }
+        }
+    }
+
+    /**
+     * @return the {@code count} richest users, richest first; ties go to the lower snowflake
+     */
+    public List<Rank> top(int count) {
+        SanityOps.requirePositive(count, "count");
+        final List<Rank> result = new ArrayList<>(Math.min(count, 64));
+        final Iterator<Rank> iterator = ranks.iterator();
+        while (result.size() < count && iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    public int size() {
+        return standings.size();
+    }
+}
@@ -0,0 +1,87 @@
+package io.ignice.c17n.data;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Periodically folds the {@code wallet_ledger} into the {@code users.wallet} snapshots.
+ * <p>
+ * Each entry records the compaction which folded it, so an append which commits after a run, whatever its id, is
+ * simply folded by the next one, and runs need no watermark of their own.
+ *
+ * @see io.ignice.c17n.LedgerOperations
+ */
+public final class LedgerCompactor implements Disposable {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerCompactor.class);
+
+    private final Supplier<Mono<Integer>> compaction;
+    private final Disposable timer;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder compacted = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public LedgerCompactor(@NonNull Supplier<Mono<Integer>> compaction, @NonNull Duration interval) {
+        this(compaction, interval, Schedulers.parallel());
+    }
+
+    /**
+     * @param compaction folds every ledger entry not folded yet into the snapshots, e.g. in a transaction, and returns
+     *                   the users compacted
+     * @param interval   time between runs
+     */
+    public LedgerCompactor(@NonNull Supplier<Mono<Integer>> compaction, @NonNull Duration interval, @NonNull Scheduler scheduler) {
+        this.compaction = SanityOps.requireNonNull(compaction, "compaction");
+        SanityOps.requirePositive(SanityOps.requireNonNull(interval, "interval").toNanos(), "interval");
+        SanityOps.requireNonNull(scheduler, "scheduler");
+        this.timer = Flux.interval(interval, interval, scheduler)
+                .onBackpressureDrop()
+                .concatMap(tick -> run().onErrorResume(error -> {
+                    failures.increment();
+                    log.warn("Failed to compact the wallet ledger", error);
+                    return Mono.empty();
+                }), 1)
+                .subscribe();
+    }
+
+    public Stats stats() {
+        return new Stats(runs.sum(), compacted.sum(), failures.sum());
+    }
+
+    @Override
+    public void dispose() {
+        timer.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return timer.isDisposed();
+    }
+
+    private Mono<Void> run() {
+        return Mono.defer(compaction)
+                .doOnNext(users -> {
+                    compacted.add(users);
+                    runs.increment();
+                })
+                .then();
+    }
+
+    /**
+     * @param compacted users whose snapshots were brought forward
+     */
+    public record Stats(long runs, long compacted, long failures) {
+    }
+}
@@ -0,0 +1,153 @@
+package io.ignice.c17n.data;
+
+import io.ignice.c17n.util.SanityOps;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import lombok.NonNull;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.pool.PoolMetricsRecorder;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ConnectionPool} which also measures how long callers wait for a connection, and how many connections it
+ * had to open to serve them.
+ * <p>
+ * Opening a Postgres connection costs a TLS handshake, authentication and the session options, so with a warm pool
+ * {@link Stats#opened()} stays flat while {@link Stats#acquisitions()} grows.
+ */
+public final class MeteredConnectionPool implements ConnectionFactory, Disposable, Closeable {
+
+    private final ConnectionPool pool;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder opened = new LongAdder();
+
+    /**
+     * @param configuration everything but the metrics recorder, which this pool installs
+     */
+    public MeteredConnectionPool(@NonNull ConnectionPoolConfiguration.Builder configuration) {
+        SanityOps.requireNonNull(configuration, "configuration");
+        this.pool = new ConnectionPool(configuration.metricsRecorder(new Recorder()).build());
+    }
+
+    @Override
+    public Mono<Connection> create() {
+        return Mono.defer(() -> {
+            final long start = System.nanoTime();
+            return pool.create()
+                    .doOnSuccess(connection -> {
+                        final long nanos = System.nanoTime() - start;
+                        acquisitions.increment();
+                        acquireNanos.add(nanos);
+                        maxAcquireNanos.accumulate(nanos);
+                    })
+                    .doOnError(error -> failures.increment());
+        });
+    }
+
+    /**
+     * Opens the pool's initial connections ahead of the first query.
+     *
+     * @return the number of connections opened
+     */
+    public Mono<Integer> warmup() {
+        return pool.warmup();
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return pool.getMetadata();
+    }
+
+    public Stats stats() {
+        final PoolMetrics metrics = pool.getMetrics().orElseThrow();
+        final long count = acquisitions.sum();
+        return new Stats(metrics.acquiredSize(), metrics.idleSize(), metrics.pendingAcquireSize(),
+                metrics.allocatedSize(), metrics.getMaxAllocatedSize(),
+                count, failures.sum(), opened.sum(),
+                Duration.ofNanos(count == 0 ? 0 : acquireNanos.sum() / count), Duration.ofNanos(maxAcquireNanos.get()));
+    }
+
+    @Override
+    public void dispose() {
+        pool.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return pool.isDisposed();
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    /**
+     * @param acquired     connections currently handed out
+     * @param idle         connections open and waiting in the pool
+     * @param pending      callers waiting for a connection
+     * @param allocated    connections open, whether acquired or idle
+     * @param maxSize      connections the pool may open
+     * @param acquisitions connections handed out so far
+     * @param failures     acquisitions that failed, e.g. by timing out
+     * @param opened       connections opened so far
+     * @param meanAcquire  mean time from asking for a connection to getting one
+     * @param maxAcquire   longest such time
+     */
+    public record Stats(int acquired, int idle, int pending, int allocated, int maxSize,
+                        long acquisitions, long failures, long opened, Duration meanAcquire, Duration maxAcquire) {
+    }
+
+    private final class Recorder implements PoolMetricsRecorder {
+
+        @Override
+        public void recordAllocationSuccessAndLatency(long latencyMs) {
+            opened.increment();
+        }
+
+        @Override
+        public void recordAllocationFailureAndLatency(long latencyMs) {
+        }
+
+        @Override
+        public void recordResetLatency(long latencyMs) {
+        }
+
+        @Override
+        public void recordDestroyLatency(long latencyMs) {
+        }
+
+        @Override
+        public void recordRecycled() {
+        }
+
+        @Override
+        public void recordLifetimeDuration(long millisecondsSinceAllocation) {
+        }
+
+        @Override
+        public void recordIdleTime(long millisecondsIdle) {
+        }
+
+        @Override
+        public void recordSlowPath() {
+        }
+
+        @Override
+        public void recordFastPath() {
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package io.ignice.c17n.data;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Read-through cache of {@link User} wallets, keyed by snowflake.
+ * <p>
+ * Entries expire after a fixed time to live, and the least recently used ones are evicted beyond
+ * {@code maxEntries}. Write paths must call {@link #update(User)} with the committed user, or
+ * {@link #invalidate(long)} if they do not know it, once their transaction has committed. An entry is never replaced
+ * by an older {@link User#version()}, and a load that overlaps a write is returned but not cached, so a committed
+ * write is never followed by a stale read from this cache.
+ */
+public final class WalletCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(1);
+
+    private final LongFunction<Mono<User>> loader;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    // guarded by itself, in access order
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // bumped by every write, guarded by entries
+    private long writes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public WalletCache(@NonNull LongFunction<Mono<User>> loader) {
+        this(loader, DEFAULT_MAX_ENTRIES, DEFAULT_TTL, System::nanoTime);
+    }
+
+    /**
+     * @param loader reads a user by snowflake, e.g. from the database
+     * @param clock  nanosecond time source for expiry
+     */
+    public WalletCache(@NonNull LongFunction<Mono<User>> loader, int maxEntries, @NonNull Duration ttl, @NonNull LongSupplier clock) {
+        this.loader = SanityOps.requireNonNull(loader, "loader");
+        this.maxEntries = SanityOps.requirePositive(maxEntries, "maxEntries");
+        this.ttlNanos = SanityOps.requirePositive(SanityOps.requireNonNull(ttl, "ttl").toNanos(), "ttl");
+        this.clock = SanityOps.requireNonNull(clock, "clock");
+    }
+
+    /**
+     * @return the wallet of the user with {@code snowflake}, or empty if there is no such user
+     */
+    public Mono<Long> wallet(long snowflake) {
+        return Mono.defer(() -> {
+            final long now = clock.getAsLong();
+            final long generation;
+            synchronized (entries) {
+                final Entry entry = entries.get(snowflake);
+                if (entry != null && now - entry.loadedAt < ttlNanos) {
+                    hits.increment();
+                    return Mono.just(entry.wallet);
+                }
+                if (entry != null) {
+                    entries.remove(snowflake);
+                    expirations.increment();
+                }
+                generation = writes;
+            }
+            misses.increment();
+            return loader.apply(snowflake)
+                    .doOnNext(user -> store(user, now, generation))
+                    .map(User::wallet);
+        });
+    }
+
+    /**
+     * Replaces the cached wallet of {@code committed}'s snowflake, unless a newer version is already cached.
+     */
+    public void update(@NonNull User committed) {
+        SanityOps.requireNonNull(committed, "committed");
+        synchronized (entries) {
+            writes++;
+            put(committed, clock.getAsLong());
+        }
+    }
+
+    /**
+     * Records {@code delta} in {@code ledger} and adds it to the cached wallet of {@code snowflake}, if there is one.
+     * Both happen as one write, so that a load which reads the recorded delta from the ledger is not cached with the
+     * delta added twice.
+     */
+    public void adjust(long snowflake, long delta, @NonNull WalletLedger ledger) {
+        SanityOps.requireNonNull(ledger, "ledger");
+        synchronized (entries) {
+            writes++;
+            ledger.record(snowflake, delta);
+            final Entry entry = entries.get(snowflake);
+            if (entry != null) {
+                entries.put(snowflake, new Entry(WalletLedger.merge(entry.wallet, delta), entry.version, entry.loadedAt));
+            }
+        }
+    }
+
+    public void invalidate(long snowflake) {
+        synchronized (entries) {
+            writes++;
+            entries.remove(snowflake);
+        }
+    }
+
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits.sum(), misses.sum(), expirations.sum(), evictions.sum(), entries.size());
+        }
+    }
+
+    private void store(User user, long loadedAt, long generation) {
+        synchronized (entries) {
+            // a write landed while loading, which the loaded user may or may not reflect
+            if (writes == generation) {
+                put(user, loadedAt);
+            }
+        }
+    }
+
+    // guarded by entries
+    private void put(User user, long loadedAt) {
+        final long snowflake = user.snowflake().asLong();
+        final long version = version(user);
+        final Entry cached = entries.get(snowflake);
+        if (cached != null && cached.version > version) {
+            return;
+        }
+        entries.put(snowflake, new Entry(user.wallet(), version, loadedAt));
+        if (entries.size() > maxEntries) {
+            final Iterator<Entry> eldest = entries.values().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static long version(User user) {
+        final Long version = user.version();
+        return version == null ? 0 : version;
+    }
+
+    private record Entry(long wallet, long version, long loadedAt) {
+    }
+
+    /**
+     * @param expirations entries found past their time to live, which count as misses too
+     * @param evictions   entries dropped to stay within {@code maxEntries}
+     */
+    public record Stats(long hits, long misses, long expirations, long evictions, int entries) {
+
+        public double hitRate() {
+            final long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+    }
+}
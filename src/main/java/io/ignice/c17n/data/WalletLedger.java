@@ -0,0 +1,403 @@
+package io.ignice.c17n.data;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.LongFunction;
+
+/**
+ * Write-behind buffer of wallet deltas, keyed by snowflake.
+ * <p>
+ * {@link #record(long, long)} adds a delta to the pending sum of its snowflake in one of several independently
+ * locked stripes, each an open addressing table of primitive {@code long}s, so concurrent writers rarely meet and
+ * nothing is boxed. Pending sums are written in batches of up to {@code batchSize} users, every {@code interval} or
+ * as soon as that many users have pending deltas, and put back if a batch fails. {@link #user(long)} reads a user
+ * with its pending sum merged in.
+ * <p>
+ * Deltas recorded since the last flush are lost if the process dies, so owners must {@link #dispose()} and then
+ * {@link #flush()} on shutdown.
+ */
+public final class WalletLedger implements Disposable {
+
+    private static final Logger log = LoggerFactory.getLogger(WalletLedger.class);
+
+    /**
+     * Where flushed deltas go.
+     */
+    public enum Target {
+        /**
+         * Wallets are updated in place.
+         */
+        USERS,
+        /**
+         * Deltas are appended to the wallet ledger, which is folded into the wallets later. Only write-behind appends
+         * to it, so wallets written through would bypass it, and it takes no withdrawals, so that where folding
+         * happens to split the entries cannot change a balance.
+         */
+        LEDGER;
+
+        public static Target of(@NonNull String name) {
+            return valueOf(name.strip().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * @param writeBehind whether wallet writes should be recorded here rather than written through
+     * @param stripes     independently locked tables, rounded up to a power of two
+     * @param batchSize   users per batched write, and the pending users which trigger a flush
+     * @param interval    time between flushes
+     * @param target      where flushes write, which must be {@link Target#USERS} unless {@code writeBehind}
+     */
+    public record Settings(boolean writeBehind, int stripes, int batchSize, @NonNull Duration interval,
+                           @NonNull Target target) {
+
+        public static final Settings DEFAULT = new Settings(false, 16, 500, Duration.ofSeconds(5), Target.USERS);
+
+        public Settings {
+            SanityOps.requirePositive(stripes, "stripes");
+            SanityOps.requirePositive(batchSize, "batchSize");
+            SanityOps.requirePositive(SanityOps.requireNonNull(interval, "interval").toNanos(), "interval");
+            if (SanityOps.requireNonNull(target, "target") == Target.LEDGER && !writeBehind) {
+                throw new IllegalArgumentException(String.format("target (= %s) requires writeBehind", target));
+            }
+        }
+    }
+
+    private final BiFunction<long[], long[], Mono<Integer>> writer;
+    private final LongFunction<Mono<User>> reader;
+    private final Settings settings;
+    private final Stripe[] stripes;
+    private final Disposable timer;
+
+    // users with a pending delta, across all stripes
+    private final AtomicInteger pending = new AtomicInteger();
+
+    // guarded by this; flushes started, which reads compare to know whether pending deltas moved meanwhile
+    private long flushes;
+    private Mono<Integer> inflight;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param writer adds {@code deltas[i]} to the wallet of {@code snowflakes[i]} and returns the users updated, e.g.
+     *               {@link io.ignice.c17n.WalletOperations#addToWallets(long[], long[])} in a transaction
+     * @param reader reads a user by snowflake, e.g. from the database
+     */
+    public WalletLedger(@NonNull BiFunction<long[], long[], Mono<Integer>> writer, @NonNull LongFunction<Mono<User>> reader,
+                        @NonNull Settings settings) {
+        this(writer, reader, settings, Schedulers.parallel());
+    }
+
+    /**
+     * @param scheduler runs the periodic and size triggered flushes
+     */
+    public WalletLedger(@NonNull BiFunction<long[], long[], Mono<Integer>> writer, @NonNull LongFunction<Mono<User>> reader,
+                        @NonNull Settings settings, @NonNull Scheduler scheduler) {
+        this.writer = SanityOps.requireNonNull(writer, "writer");
+        this.reader = SanityOps.requireNonNull(reader, "reader");
+        this.settings = SanityOps.requireNonNull(settings, "settings");
+        SanityOps.requireNonNull(scheduler, "scheduler");
+        this.stripes = new Stripe[settings.stripes() == 1 ? 1 : Integer.highestOneBit(settings.stripes() - 1) << 1];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.timer = settings.writeBehind()
+                ? Flux.interval(settings.interval(), settings.interval(), scheduler)
+                        .onBackpressureDrop()
+                        .concatMap(tick -> flush().onErrorResume(error -> Mono.empty()), 1)
+                        .subscribe()
+                : Disposables.single();
+    }
+
+    public Settings settings() {
+        return settings;
+    }
+
+    public boolean writeBehind() {
+        return settings.writeBehind();
+    }
+
+    /**
+     * Adds {@code delta} to the pending sum of {@code snowflake}. Sums saturate at either end of {@code long}.
+     *
+     * @param delta any amount but {@link Long#MIN_VALUE}; negative amounts are withdrawals, which the
+     *              {@link Target#LEDGER ledger} target does not take
+     */
+    public void record(long snowflake, long delta) {
+        if (delta == Long.MIN_VALUE) {
+            throw new IllegalArgumentException(String.format("delta (= %d) must be greater than Long.MIN_VALUE", delta));
+        }
+        if (delta < 0 && settings.target() == Target.LEDGER) {
+            throw new IllegalArgumentException(String.format("delta (= %d) must not be negative for the ledger target", delta));
+        }
+        if (stripe(snowflake).add(snowflake, delta) && pending.incrementAndGet() >= settings.batchSize()) {
+            flush().subscribe(null, error -> { });
+        }
+        recorded.increment();
+    }
+
+    /**
+     * @return the sum of the deltas recorded for {@code snowflake} that are not written yet
+     */
+    public long pending(long snowflake) {
+        return stripe(snowflake).get(snowflake);
+    }
+
+    /**
+     * Reads the user with {@code snowflake} and adds its pending deltas to the wallet, as the next flush will.
+     *
+     * @return the user, or empty if there is no such user
+     */
+    public Mono<User> user(long snowflake) {
+        return Mono.defer(() -> {
+            final long started;
+            final Mono<Integer> running;
+            synchronized (this) {
+                started = flushes;
+                running = inflight;
+            }
+            // while a flush runs, the database may or may not have its deltas yet
+            if (running != null) {
+                return running.onErrorResume(error -> Mono.empty()).then(user(snowflake));
+            }
+            return reader.apply(snowflake).flatMap(user -> {
+                final long delta;
+                synchronized (this) {
+                    if (flushes != started) {
+                        return user(snowflake);
+                    }
+                    delta = pending(snowflake);
+                }
+                return Mono.just(delta == 0 ? user : user.withWallet(merge(user.wallet(), delta)));
+            });
+        });
+    }
+
+    /**
+     * Writes every pending delta, after any flush already running.
+     *
+     * @return the users updated, once all batches are written
+     */
+    public Mono<Integer> flush() {
+        return Mono.defer(() -> {
+            final Sinks.One<Integer> done;
+            synchronized (this) {
+                if (inflight != null) {
+                    return inflight.onErrorResume(error -> Mono.empty()).then(flush());
+                }
+                if (pending.get() == 0) {
+                    return Mono.just(0);
+                }
+                flushes++;
+                done = Sinks.one();
+                inflight = done.asMono();
+            }
+            final Batch batch = drain();
+            // subscribed here rather than by the caller, so that a cancelled caller cannot strand the deltas
+            Flux.range(0, (batch.size + settings.batchSize() - 1) / settings.batchSize())
+                    .concatMap(index -> write(batch, index * settings.batchSize()))
+                    .reduce(0, Integer::sum)
+                    // settled before completing, so that whoever waits on this flush does not find it running still
+                    .subscribe(rows -> {
+                        settle();
+                        done.tryEmitValue(rows);
+                    }, error -> {
+                        settle();
+                        done.tryEmitError(error);
+                    });
+            return done.asMono();
+        });
+    }
+
+    public Stats stats() {
+        return new Stats(recorded.sum(), batches.sum(), written.sum(), failures.sum(), pending.get());
+    }
+
+    @Override
+    public void dispose() {
+        timer.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return timer.isDisposed();
+    }
+
+    private synchronized void settle() {
+        inflight = null;
+    }
+
+    private Mono<Integer> write(Batch batch, int from) {
+        final int to = Math.min(from + settings.batchSize(), batch.size);
+        return writer.apply(Arrays.copyOfRange(batch.snowflakes, from, to), Arrays.copyOfRange(batch.deltas, from, to))
+                .doOnNext(rows -> {
+                    batches.increment();
+                    written.add(rows);
+                })
+                .doOnError(error -> {
+                    failures.increment();
+                    log.warn("Failed to write {} pending wallet deltas, keeping them for the next flush", batch.size - from, error);
+                    // this and every later batch, as the earlier ones are written
+                    for (int i = from; i < batch.size; i++) {
+                        if (stripe(batch.snowflakes[i]).add(batch.snowflakes[i], batch.deltas[i])) {
+                            pending.incrementAndGet();
+                        }
+                    }
+                });
+    }
+
+    private Batch drain() {
+        final Batch batch = new Batch(pending.get());
+        for (Stripe stripe : stripes) {
+            pending.addAndGet(-stripe.drainTo(batch));
+        }
+        return batch;
+    }
+
+    private Stripe stripe(long snowflake) {
+        // the high bits of the mix, as the stripe's table indexes by its low bits
+        return stripes[(int) (mix(snowflake) >>> 32) & (stripes.length - 1)];
+    }
+
+    // a wallet after a flush of delta, which floors at zero and saturates like the batched write
+    static long merge(long wallet, long delta) {
+        final long sum = wallet + delta;
+        return sum < 0 ? (delta > 0 ? Long.MAX_VALUE : 0) : sum;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        final long sum = a + b;
+        // overflow iff both operands have the same sign, which differs from the sum's; Long.MIN_VALUE is left out, as
+        // it is neither a valid delta nor a valid sum
+        return ((a ^ sum) & (b ^ sum)) < 0 ? (a < 0 ? Long.MIN_VALUE + 1 : Long.MAX_VALUE) : sum;
+    }
+
+    // snowflakes are timestamped and sequential, so their low bits alone spread poorly
+    private static long mix(long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private static final class Batch {
+
+        private long[] snowflakes;
+        private long[] deltas;
+        private int size;
+
+        private Batch(int capacity) {
+            this.snowflakes = new long[Math.max(capacity, 16)];
+            this.deltas = new long[snowflakes.length];
+        }
+
+        private void add(long snowflake, long delta) {
+            if (size == snowflakes.length) {
+                snowflakes = Arrays.copyOf(snowflakes, size << 1);
+                deltas = Arrays.copyOf(deltas, size << 1);
+            }
+            snowflakes[size] = snowflake;
+            deltas[size] = delta;
+            size++;
+        }
+    }
+
+    // open addressing with linear probing; a zero delta marks a free slot, as a sum of zero needs no write
+    private static final class Stripe {
+
+        private long[] keys = new long[16];
+        private long[] deltas = new long[16];
+        private int size;
+
+        /**
+         * @return whether {@code key} had no pending delta before
+         */
+        private synchronized boolean add(long key, long delta) {
+            if (delta == 0) {
+                return false;
+            }
+            final int slot = slot(keys, deltas, key);
+            if (deltas[slot] != 0) {
+                final long sum = saturatedAdd(deltas[slot] == Long.MIN_VALUE ? 0 : deltas[slot], delta);
+                // a sum of zero stays put as a tombstone until the next drain, so that probing still works
+                deltas[slot] = sum == 0 ? Long.MIN_VALUE : sum;
+                return false;
+            }
+            keys[slot] = key;
+            deltas[slot] = delta;
+            if (++size > keys.length >> 1) {
+                grow();
+            }
+            return true;
+        }
+
+        private synchronized long get(long key) {
+            final long delta = deltas[slot(keys, deltas, key)];
+            return delta == Long.MIN_VALUE ? 0 : delta;
+        }
+
+        /**
+         * @return the keys drained
+         */
+        private synchronized int drainTo(Batch batch) {
+            final int drained = size;
+            for (int i = 0; i < keys.length; i++) {
+                if (deltas[i] != 0 && deltas[i] != Long.MIN_VALUE) {
+                    batch.add(keys[i], deltas[i]);
+                }
+            }
+            Arrays.fill(deltas, 0);
+            size = 0;
+            return drained;
+        }
+
+        private void grow() {
+            final long[] oldKeys = keys;
+            final long[] oldDeltas = deltas;
+            keys = new long[oldKeys.length << 1];
+            deltas = new long[oldDeltas.length << 1];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldDeltas[i] != 0) {
+                    final int slot = slot(keys, deltas, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    deltas[slot] = oldDeltas[i];
+                }
+            }
+        }
+
+        // the slot holding key, or the free slot where it belongs
+        private static int slot(long[] keys, long[] deltas, long key) {
+            final int mask = keys.length - 1;
+            int slot = (int) mix(key) & mask;
+            while (deltas[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * @param batches  batched writes that succeeded
+     * @param written  users updated by those writes
+     * @param failures batched writes that failed, whose deltas were kept
+     * @param pending  users with deltas not written yet
+     */
+    public record Stats(long recorded, long batches, long written, long failures, int pending) {
+    }
+}
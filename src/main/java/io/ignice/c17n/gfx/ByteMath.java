@@ -4,15 +4,29 @@ import lombok.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Objects;
 
-// todo lots of tests needed to confirm
-// experimental
-public class ByteMath {
+/**
+ * Byte twiddling helpers.
+ * <p>
+ * The bulk codecs read and write whole u16/u32 values through {@link MethodHandles#byteArrayViewVarHandle} and
+ * {@link MethodHandles#byteBufferViewVarHandle} views, which the JIT compiles to single (possibly unaligned) loads
+ * and stores with a byte swap where needed, instead of one shift per byte.
+ */
+public final class ByteMath {
 
     private static final Logger log = LoggerFactory.getLogger(ByteMath.class);
 
+    private static final VarHandle U16_LE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle U32_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle U32_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BUFFER_U16_LE = MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_U32_LE = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
     private static final int MIN_U8 = Byte.toUnsignedInt(u8(0x00));
     private static final int MAX_U8 = Byte.toUnsignedInt(u8(0xFF));
 
@@ -23,18 +37,165 @@ public class ByteMath {
 //        IntStream.rangeClosed(MIN_U8, MAX_U8).forEach(ByteMath::requireByte);
 //    }
 
-    private final ByteOrder order;
-
-    public ByteMath(ByteOrder byteOrder) {
+    private ByteMath() {
         throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
     }
 
     public static byte[] unpack4u8(int u8x4) {
-        return array(msb_0(u8x4), msb_1(u8x4), msb_2(u8x4), msb_3(u8x4));
+        return new byte[]{msb_0(u8x4), msb_1(u8x4), msb_2(u8x4), msb_3(u8x4)};
     }
 
     public static int pack4u8(byte u8w, byte u8x, byte u8y, byte u8z) {
-        return shl_24(u8w) & (shl_16(u8x)) & (shl_8(u8y)) & u8z;
+        return shl_24(u8w) | shl_16(u8x & 0xFF) | shl_8(u8y & 0xFF) | (u8z & 0xFF);
+    }
+
+    /**
+     * Packs {@code count} groups of 4 bytes from {@code src} into {@code dst}, first byte most significant, as
+     * {@link #pack4u8(byte, byte, byte, byte)} does.
+     */
+    public static void pack4u8(@NonNull byte[] src, int srcOffset, @NonNull int[] dst, int dstOffset, int count) {
+        Objects.checkFromIndexSize(srcOffset, Math.multiplyExact(count, 4), src.length);
+        Objects.checkFromIndexSize(dstOffset, count, dst.length);
+        for (int i = 0; i < count; i++) {
+            dst[dstOffset + i] = (int) U32_BE.get(src, srcOffset + 4 * i);
+        }
+    }
+
+    /**
+     * The inverse of {@link #pack4u8(byte[], int, int[], int, int)}.
+     */
+    public static void unpack4u8(@NonNull int[] src, int srcOffset, @NonNull byte[] dst, int dstOffset, int count) {
+        Objects.checkFromIndexSize(srcOffset, count, src.length);
+        Objects.checkFromIndexSize(dstOffset, Math.multiplyExact(count, 4), dst.length);
+        for (int i = 0; i < count; i++) {
+            U32_BE.set(dst, dstOffset + 4 * i, src[srcOffset + i]);
+        }
+    }
+
+    /**
+     * Expands {@code count} RGB triplets from {@code rgb} into opaque {@code 0xFFRRGGBB} values.
+     */
+    public static void unpackRgb(@NonNull byte[] rgb, int rgbOffset, @NonNull int[] argb, int argbOffset, int count) {
+        Objects.checkFromIndexSize(rgbOffset, Math.multiplyExact(count, 3), rgb.length);
+        Objects.checkFromIndexSize(argbOffset, count, argb.length);
+        // each triplet is read as the top 3 bytes of a big endian int; only the last one may lack a fourth byte
+        final int wide = rgbOffset + 3 * count < rgb.length ? count : count - 1;
+        int i = 0;
+        for (; i < wide; i++) {
+            argb[argbOffset + i] = 0xFF000000 | ((int) U32_BE.get(rgb, rgbOffset + 3 * i) >>> 8);
+        }
+        for (; i < count; i++) {
+            final int j = rgbOffset + 3 * i;
+            argb[argbOffset + i] = 0xFF000000 | shl_16(rgb[j] & 0xFF) | shl_8(rgb[j + 1] & 0xFF) | (rgb[j + 2] & 0xFF);
+        }
+    }
+
+    /**
+     * Drops the alpha channel of {@code count} {@code 0xAARRGGBB} values, writing RGB triplets into {@code rgb}.
+     */
+    public static void packRgb(@NonNull int[] argb, int argbOffset, @NonNull byte[] rgb, int rgbOffset, int count) {
+        Objects.checkFromIndexSize(argbOffset, count, argb.length);
+        Objects.checkFromIndexSize(rgbOffset, Math.multiplyExact(count, 3), rgb.length);
+        // each int store spills one byte into the next triplet, which the next store overwrites
+        final int wide = Math.max(0, count - 1);
+        int i = 0;
+        for (; i < wide; i++) {
+            U32_BE.set(rgb, rgbOffset + 3 * i, argb[argbOffset + i] << 8);
+        }
+        for (; i < count; i++) {
+            final int j = rgbOffset + 3 * i;
+            final int pixel = argb[argbOffset + i];
+            rgb[j] = lsb_2(pixel);
+            rgb[j + 1] = lsb_1(pixel);
+            rgb[j + 2] = lsb_0(pixel);
+        }
+    }
+
+    public static int getU16LE(@NonNull byte[] bytes, int index) {
+        return Short.toUnsignedInt((short) U16_LE.get(bytes, index));
+    }
+
+    public static void putU16LE(@NonNull byte[] bytes, int index, int u16) {
+        U16_LE.set(bytes, index, (short) u16);
+    }
+
+    public static int getU32LE(@NonNull byte[] bytes, int index) {
+        return (int) U32_LE.get(bytes, index);
+    }
+
+    public static void putU32LE(@NonNull byte[] bytes, int index, int u32) {
+        U32_LE.set(bytes, index, u32);
+    }
+
+    /**
+     * Reads a little endian u16 at {@code index}, whatever the {@link ByteBuffer#order()} of {@code buffer}.
+     */
+    public static int getU16LE(@NonNull ByteBuffer buffer, int index) {
+        return Short.toUnsignedInt((short) BUFFER_U16_LE.get(buffer, index));
+    }
+
+    /**
+     * Writes a little endian u16 at the position of {@code buffer} and advances it, whatever its
+     * {@link ByteBuffer#order()}.
+     */
+    public static ByteBuffer putU16LE(@NonNull ByteBuffer buffer, int u16) {
+        final int position = buffer.position();
+        BUFFER_U16_LE.set(buffer, position, (short) u16);
+        return buffer.position(position + 2);
+    }
+
+    public static int getU32LE(@NonNull ByteBuffer buffer, int index) {
+        return (int) BUFFER_U32_LE.get(buffer, index);
+    }
+
+    public static ByteBuffer putU32LE(@NonNull ByteBuffer buffer, int u32) {
+        final int position = buffer.position();
+        BUFFER_U32_LE.set(buffer, position, u32);
+        return buffer.position(position + 4);
+    }
+
+    /**
+     * Decodes {@code count} little endian u16 values from {@code src} into {@code dst}.
+     */
+    public static void decodeU16LE(@NonNull byte[] src, int srcOffset, @NonNull int[] dst, int dstOffset, int count) {
+        Objects.checkFromIndexSize(srcOffset, Math.multiplyExact(count, 2), src.length);
+        Objects.checkFromIndexSize(dstOffset, count, dst.length);
+        for (int i = 0; i < count; i++) {
+            dst[dstOffset + i] = Short.toUnsignedInt((short) U16_LE.get(src, srcOffset + 2 * i));
+        }
+    }
+
+    /**
+     * Encodes the low 16 bits of {@code count} values from {@code src} into {@code dst}, little endian.
+     */
+    public static void encodeU16LE(@NonNull int[] src, int srcOffset, @NonNull byte[] dst, int dstOffset, int count) {
+        Objects.checkFromIndexSize(srcOffset, count, src.length);
+        Objects.checkFromIndexSize(dstOffset, Math.multiplyExact(count, 2), dst.length);
+        for (int i = 0; i < count; i++) {
+            U16_LE.set(dst, dstOffset + 2 * i, (short) src[srcOffset + i]);
+        }
+    }
+
+    /**
+     * Decodes {@code count} little endian u32 values from {@code src} into {@code dst}.
+     */
+    public static void decodeU32LE(@NonNull byte[] src, int srcOffset, @NonNull int[] dst, int dstOffset, int count) {
+        Objects.checkFromIndexSize(srcOffset, Math.multiplyExact(count, 4), src.length);
+        Objects.checkFromIndexSize(dstOffset, count, dst.length);
+        for (int i = 0; i < count; i++) {
+            dst[dstOffset + i] = (int) U32_LE.get(src, srcOffset + 4 * i);
+        }
+    }
+
+    /**
+     * Encodes {@code count} values from {@code src} into {@code dst}, little endian.
+     */
+    public static void encodeU32LE(@NonNull int[] src, int srcOffset, @NonNull byte[] dst, int dstOffset, int count) {
+        Objects.checkFromIndexSize(srcOffset, count, src.length);
+        Objects.checkFromIndexSize(dstOffset, Math.multiplyExact(count, 4), dst.length);
+        for (int i = 0; i < count; i++) {
+            U32_LE.set(dst, dstOffset + 4 * i, src[srcOffset + i]);
+        }
     }
 
     private static int shl_8(int u32) {
@@ -123,7 +284,7 @@ public class ByteMath {
     }
 
     public static int u8(byte b) {
-        return b;
+        return Byte.toUnsignedInt(b);
     }
 
     private static void requireByte(int b) {
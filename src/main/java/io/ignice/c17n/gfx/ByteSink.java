@@ -0,0 +1,32 @@
+package io.ignice.c17n.gfx;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Destination for encoded bytes which hands out buffer space in bounded claims.
+ * <p>
+ * A claimed buffer is only valid until the next call to {@link #claim(int)}, so writers should claim, fill and
+ * forget. Claims larger than {@link #MAX_CLAIM} are not supported.
+ */
+public interface ByteSink {
+
+    int MAX_CLAIM = 1 << 10;
+
+    /**
+     * @param length number of bytes the caller is about to write
+     * @return a buffer with at least {@code length} bytes remaining
+     */
+    ByteBuffer claim(int length);
+
+    /**
+     * Claims space for up to {@code length} bytes, for writers which do not know yet how many they will write.
+     * Sinks of a fixed size may return less, in which case writing past the end throws a
+     * {@link java.nio.BufferOverflowException}.
+     *
+     * @param length number of bytes the caller may write
+     */
+    default ByteBuffer claimUpTo(int length) {
+        return claim(length);
+    }
+
+}
@@ -1,8 +1,27 @@
 package io.ignice.c17n.gfx;
 
-// experimental todo prefer ByteBuffer?
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+
+// experimental
 public interface ByteStreamSource {
 
     byte[] bytes();
 
-}
\ No newline at end of file
+    /**
+     * Number of bytes written by {@link #writeTo(ByteBuffer)}.
+     */
+    default int length() {
+        return bytes().length;
+    }
+
+    /**
+     * Writes this source into {@code buffer} at its current position.
+     * Implementations should override this to avoid materializing {@link #bytes()}.
+     */
+    default void writeTo(@NonNull ByteBuffer buffer) {
+        buffer.put(bytes());
+    }
+
+}
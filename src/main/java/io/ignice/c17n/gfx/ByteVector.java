@@ -4,9 +4,10 @@ import lombok.EqualsAndHashCode;
 import lombok.NonNull;
 import lombok.ToString;
 
-import java.util.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
 import java.util.PrimitiveIterator.OfInt;
-import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.stream.IntStream;
 
 // experimental
@@ -17,6 +18,11 @@ public interface ByteVector {
         return new ContiguousByteVector(bytes);
     }
 
+    @NonNull
+    static ByteVector wrap(@NonNull byte[] bytes, int offset, int length) {
+        return RopeByteVector.wrap(bytes, offset, length);
+    }
+
     @NonNull
     static ByteVector copy(@NonNull byte[] bytes) {
         return new ContiguousByteVector(Arrays.copyOf(bytes, bytes.length));
@@ -26,9 +32,35 @@ public interface ByteVector {
 
     int length();
 
+    /**
+     * Copies {@code length} bytes starting at {@code from} into {@code target} at its current position.
+     */
+    default void copyTo(int from, @NonNull ByteBuffer target, int length) {
+        Objects.checkFromIndexSize(from, length, length());
+        for (int i = from; i < from + length; i++) {
+            target.put(get(i));
+        }
+    }
+
+    /**
+     * @return a view of {@code [from, to)} which shares this vector's storage
+     * @see RopeByteVector#slice(ByteVector, int, int)
+     */
+    default ByteVector slice(int from, int to) {
+        return RopeByteVector.slice(this, from, to);
+    }
+
+    /**
+     * @return a view of this vector followed by {@code tail}, without copying either
+     * @see RopeByteVector#concat(ByteVector, ByteVector)
+     */
+    default ByteVector concat(@NonNull ByteVector tail) {
+        return RopeByteVector.concat(this, tail);
+    }
+
     default OfInt unsignedIterator() {
         return IntStream.range(0, length())
-                .map(this::get)
+                .map(i -> Byte.toUnsignedInt(get(i)))
                 .iterator();
     }
 
@@ -49,56 +81,15 @@ public interface ByteVector {
             return bytes.length;
         }
 
-        /**
-         * Builder for {@link ByteVector} with lazy semantics.
-         */
-        static final class Builder {
-
-            private final List<byte[]> sparseSlices = Collections.synchronizedList(new LinkedList<>());
-
-            private static byte[] flatten(@NonNull List<byte[]> bytes) {
-                final int length = bytes.stream().mapToInt(slice -> slice.length).sum();
-                final byte[] result = new byte[length];
-
-                int offset = 0;
-                for (byte[] slice : bytes) {
-                    System.arraycopy(slice, 0, result, offset, slice.length);
-                    offset += slice.length;
-                }
-
-                return result;
-            }
-
-            @ToString
-            @EqualsAndHashCode
-            private static final class LinkedSliceNode {
-
-                private static final AtomicReferenceFieldUpdater<LinkedSliceNode, LinkedSliceNode> nextUpdater =
-                        AtomicReferenceFieldUpdater.newUpdater(LinkedSliceNode.class, LinkedSliceNode.class, "next");
-                private final byte[] slice;
-                // DO NOT ACCESS DIRECTLY, use the corresponding AtomicReferenceFieldUpdater instead.
-                private volatile LinkedSliceNode next;
-
-                private LinkedSliceNode(byte[] slice) {
-                    this.slice = slice;
-                }
-
-                public @NonNull byte[] slice() {
-                    return slice;
-                }
-
-                public void setNext(@NonNull LinkedSliceNode node) {
-                    for (; ; ) {
-                        if (Objects.isNull(nextUpdater.getAndSet(next, node))) {
-                            // Do not yield thread during this time.
-                        }
-                    }
-                }
-
-                public @NonNull Optional<LinkedSliceNode> next() {
-                    return Optional.ofNullable(nextUpdater.get(next));
-                }
-            }
+        @Override
+        public void copyTo(int from, @NonNull ByteBuffer target, int length) {
+            target.put(bytes, from, length);
+        }
+
+        @Override
+        public ByteVector slice(int from, int to) {
+            Objects.checkFromToIndex(from, to, bytes.length);
+            return RopeByteVector.wrap(bytes, from, to - from);
         }
     }
 }
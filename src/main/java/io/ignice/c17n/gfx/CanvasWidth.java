@@ -4,17 +4,43 @@ import io.ignice.c17n.util.ArrayOps;
 import io.ignice.c17n.util.SanityOps;
 import lombok.NonNull;
 
+import java.nio.ByteBuffer;
+
 public record CanvasWidth(@NonNull byte[] bytes) implements ByteStreamSource {
 
+    public static final int MAX_VALUE = 0xFFFF;
+
     public CanvasWidth(@NonNull byte[] bytes) {
         SanityOps.requireNonNull(bytes, "bytes");
         ByteMath.requireLowerUpperBound(bytes, 2);
         this.bytes = ArrayOps.lsbPad(bytes, 2);
     }
 
+    public static CanvasWidth of(int value) {
+        if (value != (value & MAX_VALUE)) {
+            throw new IllegalArgumentException(String.format("value (= %d) must be a u16 value", value));
+        }
+        return new CanvasWidth(ByteMath.array(value >>> 8, value & 0xFF));
+    }
+
+    public int value() {
+        return (Byte.toUnsignedInt(bytes[0]) << 8) | Byte.toUnsignedInt(bytes[1]);
+    }
+
     @Override
     public byte[] bytes() {
         return bytes;
     }
 
+    @Override
+    public int length() {
+        return 2;
+    }
+
+    // bytes are stored most significant first, but GIF wants little endian
+    @Override
+    public void writeTo(@NonNull ByteBuffer buffer) {
+        buffer.put(bytes[1]).put(bytes[0]);
+    }
+
 }
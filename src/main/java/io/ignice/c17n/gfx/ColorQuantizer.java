@@ -0,0 +1,292 @@
+package io.ignice.c17n.gfx;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Median cut color quantizer which reduces an ARGB raster to a {@link GlobalColorTable} and one index per pixel.
+ * <p>
+ * Colors are binned into a 5-bit-per-channel histogram (32768 bins), so memory is bounded no matter how large the
+ * raster is. Each bin also keeps the exact channel sums of its pixels, which means images with few colors keep
+ * those colors exactly. Alpha is ignored.
+ * <p>
+ * Rasters of at least {@link #PARALLEL_THRESHOLD} pixels build their histogram and index buffer in parallel on the
+ * common {@link ForkJoinPool}, with one private histogram per chunk.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Median_cut">median cut</a>
+ */
+public final class ColorQuantizer {
+
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private static final int BITS = 5;
+    private static final int SIDE = 1 << BITS;
+    private static final int BINS = SIDE * SIDE * SIDE;
+
+    private ColorQuantizer() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    public static QuantizedRaster quantize(@NonNull int[] argb) {
+        return quantize(argb, GlobalColorTable.MAX_COLORS);
+    }
+
+    public static QuantizedRaster quantize(@NonNull int[] argb, int maxColors) {
+        return quantize(argb, maxColors, argb.length >= PARALLEL_THRESHOLD);
+    }
+
+    public static QuantizedRaster quantize(@NonNull int[] argb, int maxColors, boolean parallel) {
+        SanityOps.requireNonNull(argb, "argb");
+        if (maxColors < 2 || maxColors > GlobalColorTable.MAX_COLORS) {
+            throw new IllegalArgumentException(String.format("maxColors (= %d) must be in [2, %d]", maxColors, GlobalColorTable.MAX_COLORS));
+        }
+
+        final Histogram histogram = parallel ? Histogram.parallel(argb) : Histogram.of(argb, 0, argb.length);
+        final List<Box> boxes = histogram.medianCut(maxColors);
+
+        final int colors = Math.max(2, Integer.highestOneBit(Math.max(1, boxes.size() - 1)) << 1);
+        final byte[] rgb = new byte[3 * colors];
+        final byte[] lookup = new byte[BINS];
+        for (int i = 0; i < boxes.size(); i++) {
+            final Box box = boxes.get(i);
+            histogram.average(box, rgb, 3 * i);
+            box.fill(lookup, (byte) i);
+        }
+
+        final byte[] indices = new byte[argb.length];
+        if (parallel) {
+            final int chunks = (int) chunks(argb.length).count();
+            chunks(argb.length).parallel().forEach(chunk -> index(argb, indices, lookup, chunk, chunks));
+        } else {
+            index(argb, indices, lookup, 0, 1);
+        }
+        return new QuantizedRaster(new GlobalColorTable(rgb), indices);
+    }
+
+    private static void index(int[] argb, byte[] indices, byte[] lookup, int chunk, int chunks) {
+        final int from = (int) ((long) argb.length * chunk / chunks);
+        final int to = (int) ((long) argb.length * (chunk + 1) / chunks);
+        for (int i = from; i < to; i++) {
+            indices[i] = lookup[bin(argb[i])];
+        }
+    }
+
+    private static IntStream chunks(int length) {
+        final int chunks = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), length / PARALLEL_THRESHOLD));
+        return IntStream.range(0, chunks);
+    }
+
+    private static int bin(int argb) {
+        return ((argb >>> 9) & 0x7C00) | ((argb >>> 6) & 0x03E0) | ((argb >>> 3) & 0x001F);
+    }
+
+    private static int bin(int r, int g, int b) {
+        return (r << (2 * BITS)) | (g << BITS) | b;
+    }
+
+    private static final class Histogram {
+
+        private final int[] counts = new int[BINS];
+        private final long[] sums = new long[3 * BINS];
+
+        private static Histogram of(int[] argb, int from, int to) {
+            final Histogram histogram = new Histogram();
+            final int[] counts = histogram.counts;
+            final long[] sums = histogram.sums;
+            for (int i = from; i < to; i++) {
+                final int pixel = argb[i];
+                final int bin = bin(pixel);
+                counts[bin]++;
+                sums[3 * bin] += (pixel >>> 16) & 0xFF;
+                sums[3 * bin + 1] += (pixel >>> 8) & 0xFF;
+                sums[3 * bin + 2] += pixel & 0xFF;
+            }
+            return histogram;
+        }
+
+        private static Histogram parallel(int[] argb) {
+            final int chunks = (int) chunks(argb.length).count();
+            return chunks(argb.length).parallel()
+                    .mapToObj(chunk -> of(argb,
+                            (int) ((long) argb.length * chunk / chunks),
+                            (int) ((long) argb.length * (chunk + 1) / chunks)))
+                    .reduce(Histogram::merge)
+                    .orElseGet(Histogram::new);
+        }
+
+        private Histogram merge(Histogram other) {
+            for (int i = 0; i < BINS; i++) {
+                counts[i] += other.counts[i];
+            }
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += other.sums[i];
+            }
+            return this;
+        }
+
+        private List<Box> medianCut(int maxColors) {
+            final List<Box> boxes = new ArrayList<>(maxColors);
+            final Box all = new Box(0, SIDE - 1, 0, SIDE - 1, 0, SIDE - 1);
+            if (shrink(all)) {
+                boxes.add(all);
+            }
+            while (boxes.size() < maxColors) {
+                Box largest = null;
+                for (Box box : boxes) {
+                    if (box.splittable() && (largest == null || box.count > largest.count)) {
+                        largest = box;
+                    }
+                }
+                if (largest == null) {
+                    break;
+                }
+                boxes.add(split(largest));
+            }
+            return boxes;
+        }
+
+        /**
+         * Cuts {@code box} at the median of its longest axis, keeping the lower half in place.
+         *
+         * @return the upper half
+         */
+        private Box split(Box box) {
+            final int axis = box.longestAxis();
+            final long[] slices = new long[SIDE];
+            for (int r = box.r0; r <= box.r1; r++) {
+                for (int g = box.g0; g <= box.g1; g++) {
+                    for (int b = box.b0; b <= box.b1; b++) {
+                        slices[axis == 0 ? r : axis == 1 ? g : b] += counts[bin(r, g, b)];
+                    }
+                }
+            }
+            final int lo = box.lo(axis);
+            final int hi = box.hi(axis);
+            int cut = lo;
+            for (long seen = slices[lo]; cut < hi - 1 && 2 * seen < box.count; seen += slices[++cut]) {
+                // advance until half of the pixels are at or below the cut
+            }
+            final Box upper = box.copy();
+            box.hi(axis, cut);
+            upper.lo(axis, cut + 1);
+            shrink(box);
+            shrink(upper);
+            return upper;
+        }
+
+        /**
+         * Tightens {@code box} around its occupied bins and recounts it.
+         *
+         * @return false if the box is empty
+         */
+        private boolean shrink(Box box) {
+            int r0 = SIDE, r1 = -1, g0 = SIDE, g1 = -1, b0 = SIDE, b1 = -1;
+            long count = 0L;
+            for (int r = box.r0; r <= box.r1; r++) {
+                for (int g = box.g0; g <= box.g1; g++) {
+                    for (int b = box.b0; b <= box.b1; b++) {
+                        final int n = counts[bin(r, g, b)];
+                        if (n != 0) {
+                            count += n;
+                            r0 = Math.min(r0, r); r1 = Math.max(r1, r);
+                            g0 = Math.min(g0, g); g1 = Math.max(g1, g);
+                            b0 = Math.min(b0, b); b1 = Math.max(b1, b);
+                        }
+                    }
+                }
+            }
+            if (count == 0L) {
+                return false;
+            }
+            box.r0 = r0; box.r1 = r1;
+            box.g0 = g0; box.g1 = g1;
+            box.b0 = b0; box.b1 = b1;
+            box.count = count;
+            return true;
+        }
+
+        private void average(Box box, byte[] rgb, int offset) {
+            long r = 0L, g = 0L, b = 0L;
+            for (int ri = box.r0; ri <= box.r1; ri++) {
+                for (int gi = box.g0; gi <= box.g1; gi++) {
+                    for (int bi = box.b0; bi <= box.b1; bi++) {
+                        final int bin = bin(ri, gi, bi);
+                        r += sums[3 * bin];
+                        g += sums[3 * bin + 1];
+                        b += sums[3 * bin + 2];
+                    }
+                }
+            }
+            final long half = box.count / 2;
+            rgb[offset] = (byte) ((r + half) / box.count);
+            rgb[offset + 1] = (byte) ((g + half) / box.count);
+            rgb[offset + 2] = (byte) ((b + half) / box.count);
+        }
+    }
+
+    private static final class Box {
+
+        private int r0, r1, g0, g1, b0, b1;
+        private long count;
+
+        private Box(int r0, int r1, int g0, int g1, int b0, int b1) {
+            this.r0 = r0; this.r1 = r1;
+            this.g0 = g0; this.g1 = g1;
+            this.b0 = b0; this.b1 = b1;
+        }
+
+        private Box copy() {
+            final Box copy = new Box(r0, r1, g0, g1, b0, b1);
+            copy.count = count;
+            return copy;
+        }
+
+        private boolean splittable() {
+            return r0 != r1 || g0 != g1 || b0 != b1;
+        }
+
+        private int longestAxis() {
+            final int r = r1 - r0, g = g1 - g0, b = b1 - b0;
+            return (g >= r && g >= b) ? 1 : (r >= b) ? 0 : 2;
+        }
+
+        private int lo(int axis) {
+            return axis == 0 ? r0 : axis == 1 ? g0 : b0;
+        }
+
+        private int hi(int axis) {
+            return axis == 0 ? r1 : axis == 1 ? g1 : b1;
+        }
+
+        private void lo(int axis, int value) {
+            switch (axis) {
+                case 0 -> r0 = value;
+                case 1 -> g0 = value;
+                default -> b0 = value;
+            }
+        }
+
+        private void hi(int axis, int value) {
+            switch (axis) {
+                case 0 -> r1 = value;
+                case 1 -> g1 = value;
+                default -> b1 = value;
+            }
+        }
+
+        private void fill(byte[] lookup, byte index) {
+            for (int r = r0; r <= r1; r++) {
+                for (int g = g0; g <= g1; g++) {
+                    for (int b = b0; b <= b1; b++) {
+                        lookup[bin(r, g, b)] = index;
+                    }
+                }
+            }
+        }
+    }
+}
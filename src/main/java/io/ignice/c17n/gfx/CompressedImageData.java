@@ -0,0 +1,33 @@
+package io.ignice.c17n.gfx;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link ImageData} whose LZW code stream has already been computed.
+ * The code stream is split into sub-blocks while writing.
+ */
+public record CompressedImageData(int minimumCodeSize, @NonNull ByteVector codes) implements ImageData {
+
+    public CompressedImageData {
+        SanityOps.requireNonNull(codes, "codes");
+        if (minimumCodeSize < 2 || minimumCodeSize > 8) {
+            throw new IllegalArgumentException(String.format("minimumCodeSize (= %d) must be in [2, 8]", minimumCodeSize));
+        }
+    }
+
+    @Override
+    public void writeTo(@NonNull ByteSink sink) {
+        sink.claim(1).put((byte) minimumCodeSize);
+        final int length = codes.length();
+        for (int offset = 0; offset < length; offset += MAX_SUB_BLOCK_LENGTH) {
+            final int n = Math.min(MAX_SUB_BLOCK_LENGTH, length - offset);
+            final ByteBuffer buffer = sink.claim(n + 1);
+            buffer.put((byte) n);
+            codes.copyTo(offset, buffer, n);
+        }
+        sink.claim(1).put(BLOCK_TERMINATOR);
+    }
+}
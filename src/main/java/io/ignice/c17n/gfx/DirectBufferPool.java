@@ -0,0 +1,90 @@
+package io.ignice.c17n.gfx;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct {@link ByteBuffer}s in power-of-two size classes.
+ * <p>
+ * Direct memory lives outside the Java heap, so rendering into it does not add GC pressure, but allocating it is
+ * slow and it is only freed once its owner is collected. Buffers are therefore recycled per size class, up to
+ * {@code maxRetainedBytes} in total. Requests above {@link #MAX_CLASS_SIZE} are allocated without pooling.
+ */
+public final class DirectBufferPool {
+
+    public static final int MIN_CLASS_SIZE = 1 << 12;
+    public static final int MAX_CLASS_SIZE = 1 << 24;
+    public static final long DEFAULT_MAX_RETAINED_BYTES = 64L << 20;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_CLASS_SIZE);
+    private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_CLASS_SIZE) - MIN_SHIFT + 1;
+
+    private static final DirectBufferPool SHARED = new DirectBufferPool(DEFAULT_MAX_RETAINED_BYTES);
+
+    private final Queue<ByteBuffer>[] free;
+    private final long maxRetainedBytes;
+    private final AtomicLong retainedBytes = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    public DirectBufferPool(long maxRetainedBytes) {
+        this.maxRetainedBytes = SanityOps.requireNonNegative(maxRetainedBytes, "maxRetainedBytes");
+        this.free = new Queue[CLASSES];
+        for (int i = 0; i < CLASSES; i++) {
+            free[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    public static DirectBufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return a cleared little endian direct buffer with a capacity of at least {@code minCapacity}
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        SanityOps.requireNonNegative(minCapacity, "minCapacity");
+        if (minCapacity > MAX_CLASS_SIZE) {
+            return ByteBuffer.allocateDirect(minCapacity).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        final int sizeClass = sizeClass(minCapacity);
+        final ByteBuffer pooled = free[sizeClass].poll();
+        if (pooled == null) {
+            return ByteBuffer.allocateDirect(MIN_CLASS_SIZE << sizeClass).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        retainedBytes.addAndGet(-pooled.capacity());
+        return pooled.clear().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Returns {@code buffer} to the pool. The caller must not touch it afterwards.
+     */
+    public void release(@NonNull ByteBuffer buffer) {
+        SanityOps.requireNonNull(buffer, "buffer");
+        final int capacity = buffer.capacity();
+        if (!buffer.isDirect() || capacity > MAX_CLASS_SIZE || capacity < MIN_CLASS_SIZE || Integer.bitCount(capacity) != 1) {
+            return; // not ours, left to the garbage collector
+        }
+        if (retainedBytes.addAndGet(capacity) > maxRetainedBytes) {
+            retainedBytes.addAndGet(-capacity);
+            return;
+        }
+        free[sizeClass(capacity)].offer(buffer);
+    }
+
+    public long retainedBytes() {
+        return retainedBytes.get();
+    }
+
+    private static int sizeClass(int capacity) {
+        if (capacity <= MIN_CLASS_SIZE) {
+            return 0;
+        }
+        return (Integer.SIZE - Integer.numberOfLeadingZeros(capacity - 1)) - MIN_SHIFT;
+    }
+}
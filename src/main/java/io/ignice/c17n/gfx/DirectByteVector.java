@@ -0,0 +1,100 @@
+package io.ignice.c17n.gfx;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import lombok.NonNull;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link ByteVector} over direct (off-heap) memory borrowed from a {@link DirectBufferPool}.
+ * <p>
+ * {@link #close()} hands the memory back to the pool, after which this vector and every view obtained from it must
+ * no longer be used.
+ */
+public final class DirectByteVector implements ByteVector, AutoCloseable {
+
+    private final DirectBufferPool pool;
+    private final ByteBuffer buffer;
+    private final int length;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    DirectByteVector(DirectBufferPool pool, ByteBuffer buffer, int length) {
+        this.pool = pool;
+        this.buffer = buffer;
+        this.length = Objects.checkIndex(length, buffer.capacity() + 1);
+    }
+
+    @Override
+    public byte get(int i) {
+        return buffer.get(Objects.checkIndex(i, length));
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public void copyTo(int from, @NonNull ByteBuffer target, int length) {
+        Objects.checkFromIndexSize(from, length, this.length);
+        target.put(buffer.slice(from, length));
+    }
+
+    /**
+     * @return a read-only view of the contents
+     */
+    public ByteBuffer asByteBuffer() {
+        return buffer.slice(0, length).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a Netty buffer wrapping the contents, e.g. for writing straight to a channel
+     */
+    public ByteBuf asByteBuf() {
+        return Unpooled.wrappedBuffer(asByteBuffer());
+    }
+
+    /**
+     * Discord4J only accepts attachments as an {@link InputStream}, which this reads directly from off-heap memory.
+     */
+    public InputStream asInputStream() {
+        final ByteBuffer view = asByteBuffer();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return view.hasRemaining() ? Byte.toUnsignedInt(view.get()) : -1;
+            }
+
+            @Override
+            public int read(byte @NonNull [] bytes, int offset, int length) {
+                Objects.checkFromIndexSize(offset, length, bytes.length);
+                if (length == 0) return 0;
+                if (!view.hasRemaining()) return -1;
+                final int n = Math.min(length, view.remaining());
+                view.get(bytes, offset, n);
+                return n;
+            }
+
+            @Override
+            public int available() {
+                return view.remaining();
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            pool.release(buffer);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DirectByteVector[length=" + length + ']';
+    }
+}
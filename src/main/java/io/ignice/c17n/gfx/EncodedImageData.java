@@ -0,0 +1,38 @@
+package io.ignice.c17n.gfx;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+
+/**
+ * {@link ImageData} which has already been written out in its final form
+ * (minimum code size, sub-blocks and block terminator), e.g. by a worker thread.
+ */
+public record EncodedImageData(int minimumCodeSize, @NonNull ByteVector encoded) implements ImageData {
+
+    public EncodedImageData {
+        SanityOps.requireNonNull(encoded, "encoded");
+    }
+
+    /**
+     * Runs {@code data} through a private heap sink, so that it can be written again later without recompressing.
+     */
+    public static EncodedImageData of(@NonNull ImageData data, int expectedLength) {
+        SanityOps.requireNonNull(data, "data");
+        final HeapByteSink sink = new HeapByteSink(expectedLength);
+        data.writeTo(sink);
+        return new EncodedImageData(data.minimumCodeSize(), sink.written());
+    }
+
+    public int length() {
+        return encoded.length();
+    }
+
+    @Override
+    public void writeTo(@NonNull ByteSink sink) {
+        final int length = encoded.length();
+        for (int offset = 0; offset < length; offset += ByteSink.MAX_CLAIM) {
+            final int n = Math.min(ByteSink.MAX_CLAIM, length - offset);
+            encoded.copyTo(offset, sink.claim(n), n);
+        }
+    }
+}
@@ -1,17 +1,45 @@
 package io.ignice.c17n.gfx;
 
+import io.ignice.c17n.util.SanityOps;
 import lombok.NonNull;
+import reactor.util.annotation.Nullable;
+
+import java.util.List;
+import java.util.Objects;
 
 //http://giflib.sourceforge.net/whatsinagif/bits_and_bytes.html
 public record GIF(@NonNull Header header,
                   @NonNull LogicalScreenDescriptor logicalScreenDescriptor,
-                  @NonNull GlobalColorTable globalColorTable) {
-
-    // TODO WARNING: NEED TO SWAP TO LITTLE ENDIAN ORDER
-    // TODO WARNING: NEED TO SWAP TO LITTLE ENDIAN ORDER
-    // TODO WARNING: NEED TO SWAP TO LITTLE ENDIAN ORDER
-    // TODO WARNING: NEED TO SWAP TO LITTLE ENDIAN ORDER
-    // TODO WARNING: NEED TO SWAP TO LITTLE ENDIAN ORDER
+                  @NonNull GlobalColorTable globalColorTable,
+                  @NonNull List<ImageBlock> imageBlocks,
+                  @Nullable LoopExtension loop) {
+
+    public GIF {
+        SanityOps.requireNonNull(header, "header");
+        SanityOps.requireNonNull(logicalScreenDescriptor, "logicalScreenDescriptor");
+        SanityOps.requireNonNull(globalColorTable, "globalColorTable");
+        imageBlocks = List.copyOf(SanityOps.requireNonNull(imageBlocks, "imageBlocks"));
+        final PackedField packedField = logicalScreenDescriptor.packedField();
+        if (!packedField.globalColorTableFlag() || packedField.sizeOfGlobalColorTable() != globalColorTable.sizeBits()) {
+            throw new IllegalArgumentException("packedField must flag a global color table of the given size");
+        }
+        if (header != Header.GIF89A && (loop != null || imageBlocks.stream().map(ImageBlock::graphicControl).anyMatch(Objects::nonNull))) {
+            throw new IllegalArgumentException("extensions require a GIF89a header");
+        }
+    }
+
+    public GIF(@NonNull Header header,
+               @NonNull LogicalScreenDescriptor logicalScreenDescriptor,
+               @NonNull GlobalColorTable globalColorTable,
+               @NonNull List<ImageBlock> imageBlocks) {
+        this(header, logicalScreenDescriptor, globalColorTable, imageBlocks, null);
+    }
+
+    public GIF(@NonNull Header header,
+               @NonNull LogicalScreenDescriptor logicalScreenDescriptor,
+               @NonNull GlobalColorTable globalColorTable) {
+        this(header, logicalScreenDescriptor, globalColorTable, List.of(), null);
+    }
 
     //
     // Anatomy of a GIF:
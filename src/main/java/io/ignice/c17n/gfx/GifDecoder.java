@@ -0,0 +1,76 @@
+package io.ignice.c17n.gfx;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Opens GIF files as {@link MappedGif}s without reading them onto the heap.
+ * <p>
+ * Files are mapped with {@link FileChannel#map}, so opening one only touches the pages holding the header and the
+ * logical screen descriptor. Everything else is parsed lazily by {@link MappedGif}.
+ */
+public final class GifDecoder {
+
+    static final int HEADER_LENGTH = 6;
+    static final int PREAMBLE_LENGTH = HEADER_LENGTH + LogicalScreenDescriptor.LENGTH;
+
+    private GifDecoder() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Maps {@code path} read-only. The mapping stays valid after this method returns, and is released once the
+     * returned {@link MappedGif} is garbage collected.
+     *
+     * @throws IllegalArgumentException if the file does not start with a GIF header
+     */
+    public static MappedGif open(@NonNull Path path) throws IOException {
+        SanityOps.requireNonNull(path, "path");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return of(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Wraps {@code buffer} (from its position to its limit) without copying it.
+     *
+     * @throws IllegalArgumentException if the buffer does not start with a GIF header
+     */
+    public static MappedGif of(@NonNull ByteBuffer buffer) {
+        SanityOps.requireNonNull(buffer, "buffer");
+        final ByteBuffer view = buffer.slice().asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        if (view.remaining() < PREAMBLE_LENGTH) {
+            throw new IllegalArgumentException(String.format("buffer (= %d bytes) is too short to be a GIF", view.remaining()));
+        }
+        return new MappedGif(view, header(view));
+    }
+
+    private static Header header(ByteBuffer view) {
+        for (Header header : Header.values()) {
+            if (view.mismatch(ByteBuffer.wrap(header.bytes())) == HEADER_LENGTH) {
+                return header;
+            }
+        }
+        throw new IllegalArgumentException("buffer does not start with a GIF header");
+    }
+
+    /**
+     * Advances {@code buffer} past a chain of sub-blocks and its block terminator.
+     */
+    static void skipSubBlocks(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            final int length = Byte.toUnsignedInt(buffer.get());
+            if (length == 0) {
+                return;
+            }
+            buffer.position(Math.min(buffer.limit(), buffer.position() + length));
+        }
+    }
+}
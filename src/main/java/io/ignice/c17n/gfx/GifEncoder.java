@@ -0,0 +1,239 @@
+package io.ignice.c17n.gfx;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+/**
+ * Streams a {@link GIF} into a {@link WritableByteChannel} or {@link ByteBuffer} in a single pass.
+ * <p>
+ * Every part of the file writes itself straight into one working buffer, so no intermediate {@code byte[]} is
+ * allocated per field. When encoding into a channel the working buffer is drained whenever a claim does not fit.
+ * <p>
+ * Animated images can instead be encoded with
+ * {@link #encode(GIF, WritableByteChannel, Scheduler, int)}, which LZW compresses frames concurrently and stitches
+ * them into the output in order.
+ *
+ * @see <a href="http://giflib.sourceforge.net/whatsinagif/bits_and_bytes.html">bits and bytes</a>
+ */
+public final class GifEncoder {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    public static final byte TRAILER = 0x3B;
+
+    private final int bufferSize;
+
+    public GifEncoder() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    public GifEncoder(int bufferSize) {
+        SanityOps.requirePositive(bufferSize, "bufferSize");
+        if (bufferSize < ByteSink.MAX_CLAIM) {
+            throw new IllegalArgumentException(String.format("bufferSize (= %d) must be at least %d", bufferSize, ByteSink.MAX_CLAIM));
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Encodes {@code gif} into {@code channel}.
+     *
+     * @return the number of bytes written
+     */
+    public long encode(@NonNull GIF gif, @NonNull WritableByteChannel channel) throws IOException {
+        final ChannelSink sink = new ChannelSink(channel, ByteBuffer.allocate(bufferSize).order(ByteOrder.LITTLE_ENDIAN));
+        try {
+            write(gif, sink);
+            sink.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return sink.written;
+    }
+
+    /**
+     * Encodes {@code gif} into {@code target} starting at its current position.
+     *
+     * @throws BufferOverflowException if {@code target} is too small to hold the whole file
+     */
+    public void encode(@NonNull GIF gif, @NonNull ByteBuffer target) {
+        write(gif, new ByteSink() {
+            @Override
+            public ByteBuffer claim(int length) {
+                if (target.remaining() < length) throw new BufferOverflowException();
+                return target;
+            }
+
+            @Override
+            public ByteBuffer claimUpTo(int length) {
+                // the last sub-block may end exactly at the limit, and overflows by itself otherwise
+                return target;
+            }
+        });
+    }
+
+    /**
+     * Encodes {@code gif} into off-heap memory borrowed from {@code pool}.
+     * The caller owns the result and must {@link DirectByteVector#close() close} it once it has been sent.
+     */
+    public DirectByteVector encode(@NonNull GIF gif, @NonNull DirectBufferPool pool) {
+        final PooledByteSink sink = new PooledByteSink(pool, expectedLength(gif));
+        try {
+            write(gif, sink);
+        } catch (RuntimeException e) {
+            sink.abort();
+            throw e;
+        }
+        return sink.written();
+    }
+
+    private static int expectedLength(GIF gif) {
+        long pixels = 0L;
+        for (ImageBlock block : gif.imageBlocks()) {
+            pixels += block.data() instanceof EncodedImageData encoded ? encoded.length() : block.descriptor().pixels() / 2;
+        }
+        return (int) Math.min(DirectBufferPool.MAX_CLASS_SIZE, ByteSink.MAX_CLAIM + pixels);
+    }
+
+    /**
+     * Encodes {@code gif} into {@code channel}, compressing up to {@code parallelism} frames at once on
+     * {@code scheduler}. Each frame is written as soon as every frame before it has been written, on the thread
+     * that finished compressing it.
+     *
+     * @return the number of bytes written
+     */
+    public Mono<Long> encode(@NonNull GIF gif, @NonNull WritableByteChannel channel,
+                             @NonNull Scheduler scheduler, int parallelism) {
+        SanityOps.requirePositive(parallelism, "parallelism");
+        return Mono.defer(() -> {
+                    final ChannelSink sink = new ChannelSink(channel, ByteBuffer.allocate(bufferSize).order(ByteOrder.LITTLE_ENDIAN));
+                    writePreamble(gif, sink);
+                    return compress(gif.imageBlocks(), scheduler, parallelism)
+                            .doOnNext(block -> writeBlock(block, sink))
+                            .then(Mono.fromCallable(() -> {
+                                sink.claim(1).put(TRAILER);
+                                sink.flush();
+                                return sink.written;
+                            }));
+                })
+                .onErrorMap(UncheckedIOException.class, UncheckedIOException::getCause);
+    }
+
+    /**
+     * Encodes {@code gif} into a {@link RopeByteVector}, encoding up to {@code parallelism} frames at once on
+     * {@code scheduler}. Every frame is written into its own buffer by a worker, and the buffers are stitched
+     * together in order without being copied.
+     */
+    public static Mono<ByteVector> encode(@NonNull GIF gif, @NonNull Scheduler scheduler, int parallelism) {
+        SanityOps.requirePositive(parallelism, "parallelism");
+        return Mono.defer(() -> {
+            final HeapByteSink preamble = new HeapByteSink(ByteSink.MAX_CLAIM);
+            writePreamble(gif, preamble);
+            final RopeByteVector.Builder builder = RopeByteVector.builder().append(preamble.written());
+            return Flux.fromIterable(gif.imageBlocks())
+                    .flatMapSequential(block -> Mono.fromCallable(() -> encodeBlock(block)).subscribeOn(scheduler), parallelism)
+                    .doOnNext(builder::append)
+                    .then(Mono.fromCallable(() -> builder.append(new byte[] { TRAILER }).build()));
+        });
+    }
+
+    private static ByteVector encodeBlock(ImageBlock block) {
+        final HeapByteSink sink = new HeapByteSink(block.descriptor().pixels() / 2);
+        writeBlock(block, sink);
+        return sink.written();
+    }
+
+    /**
+     * Compresses every frame of {@code gif} on {@code scheduler}, so that it can be encoded (repeatedly) without
+     * running LZW again.
+     */
+    public static Mono<GIF> compress(@NonNull GIF gif, @NonNull Scheduler scheduler, int parallelism) {
+        SanityOps.requirePositive(parallelism, "parallelism");
+        return compress(gif.imageBlocks(), scheduler, parallelism)
+                .collectList()
+                .map(blocks -> new GIF(gif.header(), gif.logicalScreenDescriptor(), gif.globalColorTable(), blocks, gif.loop()));
+    }
+
+    private static Flux<ImageBlock> compress(List<ImageBlock> blocks, Scheduler scheduler, int parallelism) {
+        return Flux.fromIterable(blocks)
+                .flatMapSequential(block -> block.data() instanceof EncodedImageData
+                        ? Mono.just(block)
+                        : Mono.fromCallable(() -> compress(block)).subscribeOn(scheduler), parallelism);
+    }
+
+    private static ImageBlock compress(ImageBlock block) {
+        // LZW output rarely exceeds half a byte per pixel for rendered images
+        return block.withData(EncodedImageData.of(block.data(), block.descriptor().pixels() / 2));
+    }
+
+    static void write(GIF gif, ByteSink sink) {
+        writePreamble(gif, sink);
+        for (ImageBlock block : gif.imageBlocks()) {
+            writeBlock(block, sink);
+        }
+        sink.claim(1).put(TRAILER);
+    }
+
+    private static void writePreamble(GIF gif, ByteSink sink) {
+        put(sink, gif.header());
+        put(sink, gif.logicalScreenDescriptor());
+        put(sink, gif.globalColorTable());
+        if (gif.loop() != null) {
+            put(sink, gif.loop());
+        }
+    }
+
+    private static void writeBlock(ImageBlock block, ByteSink sink) {
+        if (block.graphicControl() != null) {
+            put(sink, block.graphicControl());
+        }
+        put(sink, block.descriptor());
+        block.data().writeTo(sink);
+    }
+
+    private static void put(ByteSink sink, ByteStreamSource source) {
+        source.writeTo(sink.claim(source.length()));
+    }
+
+    private static final class ChannelSink implements ByteSink {
+
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer;
+        private long written;
+
+        private ChannelSink(WritableByteChannel channel, ByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public ByteBuffer claim(int length) {
+            if (buffer.remaining() < length) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return buffer;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
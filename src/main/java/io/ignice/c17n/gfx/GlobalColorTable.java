@@ -1,25 +1,63 @@
 package io.ignice.c17n.gfx;
 
+import io.ignice.c17n.util.SanityOps;
 import lombok.NonNull;
 
+import java.nio.ByteBuffer;
+
 /**
  * http://giflib.sourceforge.net/whatsinagif/bits_and_bytes.html
  * <p>
- * (1) Canvas Width
- * (2) Canvas Height
- * (3) Packed Field
- * (4) Background Color Index
- * (5) Pixel Aspect Ratio
+ * A palette of 2^(N+1) RGB triplets, where N is the size field of the {@link PackedField}.
  * <p>
- * (1)    (2)  (3) (4) (5)
- * _____  _____  __  __  __
- * 0A 00  0A 00  91  00  00
+ * (0)       (1)       (2)       (3)
+ * ________  ________  ________  ________
+ * FF FF FF  FF 00 00  00 00 FF  00 00 00
  */
-public record GlobalColorTable(@NonNull CanvasWidth width,
-                               @NonNull CanvasHeight height) implements ByteStreamSource {
+public record GlobalColorTable(@NonNull byte[] rgb) implements ByteStreamSource {
+
+    public static final int MAX_COLORS = 256;
+
+    public GlobalColorTable {
+        SanityOps.requireNonNull(rgb, "rgb");
+        final int colors = rgb.length / 3;
+        if (rgb.length % 3 != 0 || colors < 2 || colors > MAX_COLORS || Integer.bitCount(colors) != 1) {
+            throw new IllegalArgumentException(String.format("rgb.length (= %d) must be 3 * 2^(N+1) for N in [0, 7]", rgb.length));
+        }
+    }
+
+    public int colors() {
+        return rgb.length / 3;
+    }
+
+    /**
+     * @return the palette as opaque {@code 0xFFRRGGBB} values
+     */
+    public int[] argb() {
+        final int[] argb = new int[colors()];
+        ByteMath.unpackRgb(rgb, 0, argb, 0, argb.length);
+        return argb;
+    }
+
+    /**
+     * @return the N for which {@link #colors()} is 2^(N+1), as stored in {@link PackedField#sizeOfGlobalColorTable()}
+     */
+    public int sizeBits() {
+        return Integer.numberOfTrailingZeros(colors()) - 1;
+    }
 
     @Override
     public byte[] bytes() {
-        return ByteMath.concat(width, height);
+        return rgb;
+    }
+
+    @Override
+    public int length() {
+        return rgb.length;
+    }
+
+    @Override
+    public void writeTo(@NonNull ByteBuffer buffer) {
+        buffer.put(rgb);
     }
 }
@@ -0,0 +1,71 @@
+package io.ignice.c17n.gfx;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * http://giflib.sourceforge.net/whatsinagif/animation_and_transparency.html
+ * <p>
+ * (1) Extension Introducer (always "!")
+ * (2) Graphic Control Label (always 0xF9)
+ * (3) Byte Size (always 4)
+ * (4) Packed Field (disposal method and transparent color flag)
+ * (5) Delay Time (hundredths of a second)
+ * (6) Transparent Color Index
+ * (7) Block Terminator
+ * <p>
+ * (1) (2) (3) (4) (5)    (6) (7)
+ * __  __  __  __  _____  __  __
+ * 21  F9  04  04  0A 00  00  00
+ */
+public record GraphicControlExtension(@NonNull DisposalMethod disposalMethod,
+                                      int delay,
+                                      int transparentColorIndex) implements ByteStreamSource {
+
+    public static final byte EXTENSION_INTRODUCER = 0x21;
+    public static final byte GRAPHIC_CONTROL_LABEL = (byte) 0xF9;
+    public static final int LENGTH = 8;
+    public static final int NO_TRANSPARENCY = -1;
+
+    public enum DisposalMethod {
+        UNSPECIFIED, DO_NOT_DISPOSE, RESTORE_TO_BACKGROUND, RESTORE_TO_PREVIOUS
+    }
+
+    public GraphicControlExtension {
+        SanityOps.requireNonNull(disposalMethod, "disposalMethod");
+        if (delay != (delay & 0xFFFF)) {
+            throw new IllegalArgumentException(String.format("delay (= %d) must be a u16 value", delay));
+        }
+        if (transparentColorIndex != NO_TRANSPARENCY && transparentColorIndex != (transparentColorIndex & 0xFF)) {
+            throw new IllegalArgumentException(String.format("transparentColorIndex (= %d) must be a u8 value", transparentColorIndex));
+        }
+    }
+
+    public GraphicControlExtension(int delay) {
+        this(DisposalMethod.DO_NOT_DISPOSE, delay, NO_TRANSPARENCY);
+    }
+
+    @Override
+    public byte[] bytes() {
+        final ByteBuffer buffer = ByteBuffer.allocate(LENGTH);
+        writeTo(buffer);
+        return buffer.array();
+    }
+
+    @Override
+    public int length() {
+        return LENGTH;
+    }
+
+    @Override
+    public void writeTo(@NonNull ByteBuffer buffer) {
+        final boolean transparent = transparentColorIndex != NO_TRANSPARENCY;
+        buffer.put(EXTENSION_INTRODUCER).put(GRAPHIC_CONTROL_LABEL).put((byte) 4);
+        buffer.put((byte) ((disposalMethod.ordinal() << 2) | (transparent ? 1 : 0)));
+        ByteMath.putU16LE(buffer, delay);
+        buffer.put(transparent ? (byte) transparentColorIndex : 0);
+        buffer.put(ImageData.BLOCK_TERMINATOR);
+    }
+}
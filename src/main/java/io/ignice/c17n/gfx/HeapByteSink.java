@@ -0,0 +1,36 @@
+package io.ignice.c17n.gfx;
+
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link ByteSink} over a heap buffer which doubles whenever a claim does not fit.
+ */
+final class HeapByteSink implements ByteSink {
+
+    private ByteBuffer buffer;
+
+    HeapByteSink(int initialCapacity) {
+        this.buffer = ByteBuffer.allocate(Math.max(initialCapacity, MAX_CLAIM));
+    }
+
+    @Override
+    public ByteBuffer claim(int length) {
+        if (buffer.remaining() < length) {
+            final ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() << 1, buffer.position() + length));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+        return buffer;
+    }
+
+    /**
+     * @return a view of everything written so far; the sink must not be written to afterwards
+     */
+    @NonNull
+    ByteVector written() {
+        return RopeByteVector.wrap(buffer.array(), 0, buffer.position());
+    }
+}
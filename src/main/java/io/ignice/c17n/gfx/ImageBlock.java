@@ -0,0 +1,27 @@
+package io.ignice.c17n.gfx;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+import reactor.util.annotation.Nullable;
+
+/**
+ * A single frame: an optional {@link GraphicControlExtension}, an {@link ImageDescriptor} and its {@link ImageData}.
+ */
+public record ImageBlock(@Nullable GraphicControlExtension graphicControl,
+                         @NonNull ImageDescriptor descriptor,
+                         @NonNull ImageData data) {
+
+    public ImageBlock {
+        SanityOps.requireNonNull(descriptor, "descriptor");
+        SanityOps.requireNonNull(data, "data");
+    }
+
+    public ImageBlock(@NonNull ImageDescriptor descriptor, @NonNull ImageData data) {
+        this(null, descriptor, data);
+    }
+
+    public ImageBlock withData(@NonNull ImageData data) {
+        return new ImageBlock(graphicControl, descriptor, data);
+    }
+
+}
@@ -0,0 +1,21 @@
+package io.ignice.c17n.gfx;
+
+/**
+ * Table based image data which follows an {@link ImageDescriptor}.
+ * <p>
+ * IMAGE_DATA = LZW_MINIMUM_CODE_SIZE SUB_BLOCK* 0x00
+ *  SUB_BLOCK = LENGTH (1 byte, [0x01, 0xFF]) DATA (LENGTH bytes)
+ */
+public interface ImageData {
+
+    int MAX_SUB_BLOCK_LENGTH = 0xFF;
+    byte BLOCK_TERMINATOR = 0x00;
+
+    int minimumCodeSize();
+
+    /**
+     * Writes the minimum code size, every sub-block and the block terminator into {@code sink}.
+     */
+    void writeTo(ByteSink sink);
+
+}
@@ -0,0 +1,68 @@
+package io.ignice.c17n.gfx;
+
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * http://giflib.sourceforge.net/whatsinagif/bits_and_bytes.html
+ * <p>
+ * (1) Image Separator (always ",")
+ * (2) Image Left
+ * (3) Image Top
+ * (4) Image Width
+ * (5) Image Height
+ * (6) Packed Field (local color table and interlace flags, always 0 for now)
+ * <p>
+ * (1) (2)    (3)    (4)    (5)    (6)
+ * __  _____  _____  _____  _____  __
+ * 2C  00 00  00 00  0A 00  0A 00  00
+ */
+public record ImageDescriptor(int left, int top, int width, int height) implements ByteStreamSource {
+
+    public static final byte IMAGE_SEPARATOR = 0x2C;
+    public static final int LENGTH = 10;
+
+    public ImageDescriptor {
+        requireU16(left, "left");
+        requireU16(top, "top");
+        requireU16(width, "width");
+        requireU16(height, "height");
+    }
+
+    public ImageDescriptor(int width, int height) {
+        this(0, 0, width, height);
+    }
+
+    public int pixels() {
+        return width * height;
+    }
+
+    @Override
+    public byte[] bytes() {
+        final ByteBuffer buffer = ByteBuffer.allocate(LENGTH);
+        writeTo(buffer);
+        return buffer.array();
+    }
+
+    @Override
+    public int length() {
+        return LENGTH;
+    }
+
+    @Override
+    public void writeTo(@NonNull ByteBuffer buffer) {
+        buffer.put(IMAGE_SEPARATOR);
+        ByteMath.putU16LE(buffer, left);
+        ByteMath.putU16LE(buffer, top);
+        ByteMath.putU16LE(buffer, width);
+        ByteMath.putU16LE(buffer, height);
+        buffer.put((byte) 0);
+    }
+
+    private static void requireU16(int value, String arg) {
+        if (value != (value & 0xFFFF)) {
+            throw new IllegalArgumentException(String.format("%s (= %d) must be a u16 value", arg, value));
+        }
+    }
+}
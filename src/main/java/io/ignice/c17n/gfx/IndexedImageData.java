@@ -0,0 +1,32 @@
+package io.ignice.c17n.gfx;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+
+/**
+ * {@link ImageData} holding one color table index per pixel.
+ * Pixels are LZW compressed straight into the {@link ByteSink} while writing.
+ */
+public record IndexedImageData(int minimumCodeSize, @NonNull byte[] indices) implements ImageData {
+
+    public IndexedImageData {
+        SanityOps.requireNonNull(indices, "indices");
+        if (minimumCodeSize < 2 || minimumCodeSize > 8) {
+            throw new IllegalArgumentException(String.format("minimumCodeSize (= %d) must be in [2, 8]", minimumCodeSize));
+        }
+    }
+
+    /**
+     * @param table   the color table the indices point into
+     * @param indices one index per pixel
+     */
+    public static IndexedImageData of(@NonNull GlobalColorTable table, @NonNull byte[] indices) {
+        SanityOps.requireNonNull(table, "table");
+        return new IndexedImageData(Math.max(2, table.sizeBits() + 1), indices);
+    }
+
+    @Override
+    public void writeTo(@NonNull ByteSink sink) {
+        LzwEncoder.local().encode(minimumCodeSize, indices, sink);
+    }
+}
@@ -1,11 +1,9 @@
 package io.ignice.c17n.gfx;
 
-import discord4j.core.util.ArrayUtil;
-import io.ignice.c17n.util.ArrayOps;
 import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
 
 import java.nio.ByteBuffer;
-import java.util.stream.Stream;
 
 /**
  * http://giflib.sourceforge.net/whatsinagif/bits_and_bytes.html
@@ -26,6 +24,8 @@ public record LogicalScreenDescriptor(CanvasWidth canvasWidth,
                                       byte backgroundColorIndex,
                                       byte pixelAspectRatio) implements ByteStreamSource {
 
+    public static final int LENGTH = 7;
+
     public LogicalScreenDescriptor {
         SanityOps.requireNonNull(canvasWidth, "canvasWidth");
         SanityOps.requireNonNull(canvasHeight, "canvasHeight");
@@ -40,13 +40,22 @@ public record LogicalScreenDescriptor(CanvasWidth canvasWidth,
 
     @Override
     public byte[] bytes() {
-        // todo single buffer
-        final byte[] w = canvasWidth.bytes();
-        final byte[] h = canvasHeight.bytes();
-        final byte[] p = packedField.bytes();
-        final byte[] bci = new byte[] { backgroundColorIndex };
-        final byte[] par = new byte[] { pixelAspectRatio };
-        return Stream.of(w, h, p, bci, par).reduce(ByteMath::concat).orElseThrow();
-                //.orElseGet(() -> new byte[0]);
+        final ByteBuffer buffer = ByteBuffer.allocate(LENGTH);
+        writeTo(buffer);
+        return buffer.array();
+    }
+
+    @Override
+    public int length() {
+        return LENGTH;
+    }
+
+    @Override
+    public void writeTo(@NonNull ByteBuffer buffer) {
+        canvasWidth.writeTo(buffer);
+        canvasHeight.writeTo(buffer);
+        packedField.writeTo(buffer);
+        buffer.put(backgroundColorIndex);
+        buffer.put(pixelAspectRatio);
     }
 }
@@ -0,0 +1,56 @@
+package io.ignice.c17n.gfx;
+
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * http://giflib.sourceforge.net/whatsinagif/bits_and_bytes.html#application_extension_block
+ * <p>
+ * (1) Extension Introducer (always "!")
+ * (2) Application Extension Label (always 0xFF)
+ * (3) Application Block Length (always 11)
+ * (4) "NETSCAPE2.0"
+ * (5) Sub-Block Length (always 3) and Sub-Block Id (always 1)
+ * (6) Loop Count (0 loops forever)
+ * (7) Block Terminator
+ * <p>
+ * (1) (2) (3) (4)                               (5)    (6)    (7)
+ * __  __  __  ________________________________  _____  _____  __
+ * 21  FF  0B  4E 45 54 53 43 41 50 45 32 2E 30  03 01  00 00  00
+ */
+public record LoopExtension(int loops) implements ByteStreamSource {
+
+    public static final LoopExtension FOREVER = new LoopExtension(0);
+    public static final byte APPLICATION_EXTENSION_LABEL = (byte) 0xFF;
+    public static final int LENGTH = 19;
+    private static final byte[] NETSCAPE = "NETSCAPE2.0".getBytes(StandardCharsets.US_ASCII);
+
+    public LoopExtension {
+        if (loops != (loops & 0xFFFF)) {
+            throw new IllegalArgumentException(String.format("loops (= %d) must be a u16 value", loops));
+        }
+    }
+
+    @Override
+    public byte[] bytes() {
+        final ByteBuffer buffer = ByteBuffer.allocate(LENGTH);
+        writeTo(buffer);
+        return buffer.array();
+    }
+
+    @Override
+    public int length() {
+        return LENGTH;
+    }
+
+    @Override
+    public void writeTo(@NonNull ByteBuffer buffer) {
+        buffer.put(GraphicControlExtension.EXTENSION_INTRODUCER).put(APPLICATION_EXTENSION_LABEL);
+        buffer.put((byte) NETSCAPE.length).put(NETSCAPE);
+        buffer.put((byte) 3).put((byte) 1);
+        ByteMath.putU16LE(buffer, loops);
+        buffer.put(ImageData.BLOCK_TERMINATOR);
+    }
+}
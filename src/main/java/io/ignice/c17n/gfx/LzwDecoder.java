@@ -0,0 +1,162 @@
+package io.ignice.c17n.gfx;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Variable-width LZW decompressor for GIF image data, the inverse of {@link LzwEncoder}.
+ * <p>
+ * The string table is kept as prefix/suffix arrays and strings are expanded through a fixed stack, so decoding
+ * allocates nothing per pixel. Instances are not thread-safe; use {@link #local()}.
+ *
+ * @see <a href="http://giflib.sourceforge.net/whatsinagif/lzw_image_data.html">LZW image data</a>
+ */
+public final class LzwDecoder {
+
+    private static final int MAX_CODES = 1 << LzwEncoder.MAX_CODE_SIZE;
+
+    private static final ThreadLocal<LzwDecoder> LOCAL = ThreadLocal.withInitial(LzwDecoder::new);
+
+    private final int[] prefix = new int[MAX_CODES];
+    private final byte[] suffix = new byte[MAX_CODES];
+    private final byte[] stack = new byte[MAX_CODES + 1];
+
+    // bit reader state
+    private ByteBuffer data;
+    private int blockRemaining;
+    private int accumulator;
+    private int bits;
+    private boolean exhausted;
+
+    /**
+     * @return a decoder owned by the calling thread
+     */
+    public static LzwDecoder local() {
+        return LOCAL.get();
+    }
+
+    /**
+     * Decodes image data (minimum code size, sub-blocks and block terminator) starting at the position of
+     * {@code data} into {@code pixels}. Truncated streams leave the remaining pixels untouched.
+     *
+     * @return the number of pixels written
+     */
+    public int decode(@NonNull ByteBuffer data, @NonNull byte[] pixels) {
+        SanityOps.requireNonNull(data, "data");
+        SanityOps.requireNonNull(pixels, "pixels");
+        final int minimumCodeSize = Byte.toUnsignedInt(data.get());
+        if (minimumCodeSize < 2 || minimumCodeSize > 8) {
+            throw new IllegalArgumentException(String.format("minimumCodeSize (= %d) must be in [2, 8]", minimumCodeSize));
+        }
+        this.data = data;
+        this.blockRemaining = 0;
+        this.accumulator = 0;
+        this.bits = 0;
+        this.exhausted = false;
+        try {
+            return decompress(minimumCodeSize, pixels);
+        } finally {
+            this.data = null;
+        }
+    }
+
+    private int decompress(int minimumCodeSize, byte[] pixels) {
+        final int clearCode = 1 << minimumCodeSize;
+        final int endOfInformation = clearCode + 1;
+        int codeSize = minimumCodeSize + 1;
+        int nextCode = clearCode + 2;
+        int previous = -1;
+        int first = 0;
+        int written = 0;
+
+        for (int i = 0; i < clearCode; i++) {
+            prefix[i] = -1;
+            suffix[i] = (byte) i;
+        }
+
+        while (written < pixels.length) {
+            final int code = read(codeSize);
+            if (code < 0 || code == endOfInformation) {
+                break;
+            }
+            if (code == clearCode) {
+                codeSize = minimumCodeSize + 1;
+                nextCode = clearCode + 2;
+                previous = -1;
+                continue;
+            }
+            if (previous == -1) {
+                if (code >= clearCode) {
+                    throw new IllegalArgumentException(String.format("code (= %d) must be a literal after a clear code", code));
+                }
+                pixels[written++] = suffix[code];
+                previous = first = code;
+                continue;
+            }
+
+            int top = 0;
+            int current = code;
+            if (code >= nextCode) {
+                if (code > nextCode) {
+                    throw new IllegalArgumentException(String.format("code (= %d) must be at most %d", code, nextCode));
+                }
+                stack[top++] = (byte) first;
+                current = previous;
+            }
+            while (current >= clearCode) {
+                stack[top++] = suffix[current];
+                current = prefix[current];
+            }
+            first = current;
+            stack[top++] = (byte) first;
+            while (top > 0 && written < pixels.length) {
+                pixels[written++] = stack[--top];
+            }
+
+            if (nextCode < MAX_CODES) {
+                prefix[nextCode] = previous;
+                suffix[nextCode] = (byte) first;
+                nextCode++;
+                if (nextCode == (1 << codeSize) && codeSize < LzwEncoder.MAX_CODE_SIZE) {
+                    codeSize++;
+                }
+            }
+            previous = code;
+        }
+        skipSubBlocks();
+        return written;
+    }
+
+    private int read(int codeSize) {
+        while (bits < codeSize) {
+            if (blockRemaining == 0) {
+                if (exhausted || !data.hasRemaining() || (blockRemaining = Byte.toUnsignedInt(data.get())) == 0) {
+                    exhausted = true;
+                    return -1;
+                }
+            }
+            if (!data.hasRemaining()) {
+                exhausted = true;
+                return -1;
+            }
+            accumulator |= Byte.toUnsignedInt(data.get()) << bits;
+            bits += Byte.SIZE;
+            blockRemaining--;
+        }
+        final int code = accumulator & ((1 << codeSize) - 1);
+        accumulator >>>= codeSize;
+        bits -= codeSize;
+        return code;
+    }
+
+    // leaves the buffer positioned after the block terminator
+    private void skipSubBlocks() {
+        if (exhausted) {
+            return;
+        }
+        data.position(Math.min(data.limit(), data.position() + blockRemaining));
+        GifDecoder.skipSubBlocks(data);
+    }
+}
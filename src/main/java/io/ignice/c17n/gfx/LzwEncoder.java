@@ -0,0 +1,181 @@
+package io.ignice.c17n.gfx;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Variable-width LZW compressor for GIF image data.
+ * <p>
+ * The code table is an open-addressing hash table keyed by {@code prefix << 8 | symbol} on plain {@code int[]}s,
+ * and codes are packed into a 64-bit accumulator which is drained into 255-byte sub-blocks claimed straight from
+ * the {@link ByteSink}. Nothing is allocated per pixel, so an instance should be reused (see {@link #local()}).
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @see <a href="http://giflib.sourceforge.net/whatsinagif/lzw_image_data.html">LZW image data</a>
+ */
+public final class LzwEncoder {
+
+    public static final int MAX_CODE_SIZE = 12;
+    private static final int MAX_CODES = 1 << MAX_CODE_SIZE;
+
+    // power of two with load factor <= 0.5 for MAX_CODES entries
+    private static final int TABLE_BITS = MAX_CODE_SIZE + 1;
+    private static final int TABLE_MASK = (1 << TABLE_BITS) - 1;
+    private static final int EMPTY = -1;
+
+    private static final ThreadLocal<LzwEncoder> LOCAL = ThreadLocal.withInitial(LzwEncoder::new);
+
+    private final int[] keys = new int[1 << TABLE_BITS];
+    private final int[] codes = new int[1 << TABLE_BITS];
+
+    // code state
+    private int clearCode;
+    private int nextCode;
+    private int codeSize;
+    private int maxCode;
+
+    // bit writer state
+    private long accumulator;
+    private int bits;
+    private ByteSink sink;
+    private ByteBuffer block;
+    private int blockStart;
+    private int blockLength;
+
+    /**
+     * @return an encoder owned by the calling thread
+     */
+    public static LzwEncoder local() {
+        return LOCAL.get();
+    }
+
+    /**
+     * Compresses {@code indices} and writes the minimum code size, sub-blocks and block terminator to {@code sink}.
+     *
+     * @throws IllegalArgumentException if an index does not fit in {@code minimumCodeSize} bits
+     */
+    public void encode(int minimumCodeSize, @NonNull byte[] indices, @NonNull ByteSink sink) {
+        encode(minimumCodeSize, indices, 0, indices.length, sink);
+    }
+
+    public void encode(int minimumCodeSize, @NonNull byte[] indices, int offset, int length, @NonNull ByteSink sink) {
+        SanityOps.requireNonNull(indices, "indices");
+        SanityOps.requireNonNull(sink, "sink");
+        Objects.checkFromIndexSize(offset, length, indices.length);
+        if (minimumCodeSize < 2 || minimumCodeSize > 8) {
+            throw new IllegalArgumentException(String.format("minimumCodeSize (= %d) must be in [2, 8]", minimumCodeSize));
+        }
+        this.sink = sink;
+        this.sink.claim(1).put((byte) minimumCodeSize);
+        try {
+            compress(minimumCodeSize, indices, offset, length);
+        } finally {
+            this.sink = null;
+            this.block = null;
+        }
+        sink.claim(1).put(ImageData.BLOCK_TERMINATOR);
+    }
+
+    private void compress(int minimumCodeSize, byte[] indices, int offset, int length) {
+        clearCode = 1 << minimumCodeSize;
+        final int endOfInformation = clearCode + 1;
+        accumulator = 0L;
+        bits = 0;
+        blockLength = 0;
+
+        reset(minimumCodeSize);
+        emit(clearCode);
+        if (length > 0) {
+            int prefix = symbol(indices[offset]);
+            for (int i = offset + 1, end = offset + length; i < end; i++) {
+                final int symbol = symbol(indices[i]);
+                final int key = (prefix << 8) | symbol;
+                int slot = hash(key);
+                int probe;
+                while ((probe = keys[slot]) != EMPTY && probe != key) {
+                    slot = (slot + 1) & TABLE_MASK;
+                }
+                if (probe == key) {
+                    prefix = codes[slot];
+                    continue;
+                }
+                emit(prefix);
+                if (nextCode < MAX_CODES) {
+                    keys[slot] = key;
+                    codes[slot] = nextCode++;
+                } else {
+                    emit(clearCode);
+                    reset(minimumCodeSize);
+                }
+                prefix = symbol;
+            }
+            emit(prefix);
+        }
+        emit(endOfInformation);
+        if (bits > 0) {
+            put((byte) accumulator);
+        }
+        closeBlock();
+    }
+
+    private int symbol(byte index) {
+        final int symbol = Byte.toUnsignedInt(index);
+        if (symbol >= clearCode) {
+            throw new IllegalArgumentException(String.format("index (= %d) must be less than %d", symbol, clearCode));
+        }
+        return symbol;
+    }
+
+    private void reset(int minimumCodeSize) {
+        Arrays.fill(keys, EMPTY);
+        nextCode = clearCode + 2;
+        codeSize = minimumCodeSize + 1;
+        maxCode = (1 << codeSize) - 1;
+    }
+
+    private static int hash(int key) {
+        return (key * 0x9E3779B1) >>> (Integer.SIZE - TABLE_BITS);
+    }
+
+    private void emit(int code) {
+        accumulator |= ((long) code) << bits;
+        bits += codeSize;
+        while (bits >= Byte.SIZE) {
+            put((byte) accumulator);
+            accumulator >>>= Byte.SIZE;
+            bits -= Byte.SIZE;
+        }
+        // the decoder widens its codes as soon as the next free code no longer fits
+        if (code == clearCode) {
+            return;
+        }
+        if (nextCode > maxCode && codeSize < MAX_CODE_SIZE) {
+            codeSize++;
+            maxCode = (1 << codeSize) - 1;
+        }
+    }
+
+    private void put(byte b) {
+        if (block == null || blockLength == ImageData.MAX_SUB_BLOCK_LENGTH) {
+            closeBlock();
+            block = sink.claimUpTo(ImageData.MAX_SUB_BLOCK_LENGTH + 1);
+            blockStart = block.position();
+            block.put((byte) 0); // patched by closeBlock()
+            blockLength = 0;
+        }
+        block.put(b);
+        blockLength++;
+    }
+
+    private void closeBlock() {
+        if (block != null) {
+            block.put(blockStart, (byte) blockLength);
+            block = null;
+        }
+    }
+}
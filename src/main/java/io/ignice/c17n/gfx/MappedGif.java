@@ -0,0 +1,250 @@
+package io.ignice.c17n.gfx;
+
+import lombok.NonNull;
+import reactor.util.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+
+/**
+ * A GIF read through zero-copy views over a (usually memory mapped) buffer.
+ * <p>
+ * The header and logical screen descriptor are read on demand, the block structure is only walked the first time
+ * {@link #frames()} is called, and LZW decompression only runs in {@link Frame#pixels()}. Color tables and image
+ * data are exposed as read-only slices of the underlying buffer.
+ *
+ * @see GifDecoder
+ */
+public final class MappedGif {
+
+    private static final int PACKED_FIELD = GifDecoder.HEADER_LENGTH + 4;
+    private static final int BACKGROUND_COLOR_INDEX = PACKED_FIELD + 1;
+    private static final byte[] NETSCAPE = "NETSCAPE2.0".getBytes(StandardCharsets.US_ASCII);
+
+    private final ByteBuffer buffer;
+    private final Header header;
+
+    // lazily initialized by scan()
+    private volatile Structure structure;
+
+    MappedGif(ByteBuffer buffer, Header header) {
+        this.buffer = buffer;
+        this.header = header;
+    }
+
+    public Header header() {
+        return header;
+    }
+
+    public int width() {
+        return u16(buffer, GifDecoder.HEADER_LENGTH);
+    }
+
+    public int height() {
+        return u16(buffer, GifDecoder.HEADER_LENGTH + 2);
+    }
+
+    public PackedField packedField() {
+        return PackedField.of(buffer.get(PACKED_FIELD));
+    }
+
+    public int backgroundColorIndex() {
+        return Byte.toUnsignedInt(buffer.get(BACKGROUND_COLOR_INDEX));
+    }
+
+    /**
+     * @return a read-only view of the global color table's RGB triplets, or null if there is none
+     */
+    @Nullable
+    public ByteBuffer globalColorTable() {
+        final PackedField packedField = packedField();
+        if (!packedField.globalColorTableFlag()) {
+            return null;
+        }
+        return slice(GifDecoder.PREAMBLE_LENGTH, colorTableLength(packedField.sizeOfGlobalColorTable()));
+    }
+
+    /**
+     * @return the NETSCAPE2.0 loop count (0 loops forever), if the file has one
+     */
+    public OptionalInt loops() {
+        final int loops = scan().loops;
+        return loops < 0 ? OptionalInt.empty() : OptionalInt.of(loops);
+    }
+
+    public int frameCount() {
+        return frames().size();
+    }
+
+    public List<Frame> frames() {
+        return scan().frames;
+    }
+
+    private Structure scan() {
+        Structure result = structure;
+        if (result == null) {
+            structure = result = Structure.of(this);
+        }
+        return result;
+    }
+
+    private ByteBuffer slice(int index, int length) {
+        if (index + length > buffer.limit()) {
+            throw new IllegalArgumentException(String.format("block at %d (= %d bytes) runs past the end of the file", index, length));
+        }
+        return buffer.slice(index, length).order(buffer.order());
+    }
+
+    private static int colorTableLength(int sizeBits) {
+        return 3 * (1 << (sizeBits + 1));
+    }
+
+    private static int u16(ByteBuffer buffer, int index) {
+        return ByteMath.getU16LE(buffer, index);
+    }
+
+    /**
+     * One image block, together with the graphic control extension preceding it.
+     *
+     * @param descriptor      position and size of the frame
+     * @param interlaced      whether rows are stored in interlaced order (they are de-interlaced by {@link #pixels()})
+     * @param graphicControl  the preceding graphic control extension, if any
+     * @param localColorTable read-only view of the frame's own RGB triplets, if any
+     * @param imageData       read-only view of the minimum code size, sub-blocks and block terminator
+     */
+    public record Frame(@NonNull ImageDescriptor descriptor,
+                        boolean interlaced,
+                        @Nullable GraphicControlExtension graphicControl,
+                        @Nullable ByteBuffer localColorTable,
+                        @NonNull ByteBuffer imageData) {
+
+        /**
+         * Runs LZW decompression over {@link #imageData()}.
+         *
+         * @return one color table index per pixel, in row-major order
+         */
+        public byte[] pixels() {
+            final byte[] pixels = new byte[descriptor.pixels()];
+            LzwDecoder.local().decode(imageData.duplicate(), pixels);
+            return interlaced ? deinterlace(pixels, descriptor.width(), descriptor.height()) : pixels;
+        }
+
+        private static byte[] deinterlace(byte[] pixels, int width, int height) {
+            final byte[] rows = new byte[pixels.length];
+            int row = 0;
+            for (int pass = 0; pass < 4; pass++) {
+                final int start = pass == 0 ? 0 : 4 >> (pass - 1);
+                final int step = pass == 0 ? 8 : 8 >> (pass - 1);
+                for (int y = start; y < height; y += step) {
+                    System.arraycopy(pixels, row++ * width, rows, y * width, width);
+                }
+            }
+            return rows;
+        }
+    }
+
+    private static final class Structure {
+
+        private final List<Frame> frames;
+        private final int loops;
+
+        private Structure(List<Frame> frames, int loops) {
+            this.frames = frames;
+            this.loops = loops;
+        }
+
+        private static Structure of(MappedGif gif) {
+            final ByteBuffer buffer = gif.buffer.duplicate().order(gif.buffer.order());
+            final ByteBuffer table = gif.globalColorTable();
+            buffer.position(GifDecoder.PREAMBLE_LENGTH + (table == null ? 0 : table.remaining()));
+
+            final List<Frame> frames = new ArrayList<>();
+            GraphicControlExtension control = null;
+            int loops = -1;
+            while (buffer.hasRemaining()) {
+                final byte introducer = buffer.get();
+                if (introducer == GifEncoder.TRAILER) {
+                    break;
+                } else if (introducer == ImageDescriptor.IMAGE_SEPARATOR) {
+                    frames.add(frame(gif, buffer, control));
+                    control = null;
+                } else if (introducer == GraphicControlExtension.EXTENSION_INTRODUCER && buffer.hasRemaining()) {
+                    final byte label = buffer.get();
+                    if (label == GraphicControlExtension.GRAPHIC_CONTROL_LABEL) {
+                        control = graphicControl(buffer);
+                    } else if (label == LoopExtension.APPLICATION_EXTENSION_LABEL) {
+                        loops = application(buffer, loops);
+                    }
+                    GifDecoder.skipSubBlocks(buffer);
+                } else {
+                    throw new IllegalArgumentException(String.format("unexpected block introducer 0x%02X at %d",
+                            introducer, buffer.position() - 1));
+                }
+            }
+            return new Structure(List.copyOf(frames), loops);
+        }
+
+        private static Frame frame(MappedGif gif, ByteBuffer buffer, GraphicControlExtension control) {
+            final int start = buffer.position();
+            final ImageDescriptor descriptor = new ImageDescriptor(
+                    u16(buffer, start), u16(buffer, start + 2), u16(buffer, start + 4), u16(buffer, start + 6));
+            final int packed = Byte.toUnsignedInt(buffer.get(start + 8));
+            int position = start + ImageDescriptor.LENGTH - 1;
+
+            ByteBuffer localColorTable = null;
+            if ((packed & 0x80) != 0) {
+                localColorTable = gif.slice(position, colorTableLength(packed & 0x07));
+                position += localColorTable.remaining();
+            }
+
+            buffer.position(position + 1); // minimum code size
+            GifDecoder.skipSubBlocks(buffer);
+            final ByteBuffer imageData = gif.slice(position, buffer.position() - position);
+            return new Frame(descriptor, (packed & 0x40) != 0, control, localColorTable, imageData);
+        }
+
+        // leaves the buffer positioned at the first data sub-block
+        private static GraphicControlExtension graphicControl(ByteBuffer buffer) {
+            final int start = buffer.position();
+            final int length = Byte.toUnsignedInt(buffer.get(start));
+            buffer.position(Math.min(buffer.limit(), start + 1 + length));
+            if (length < 4) {
+                return null;
+            }
+            final int packed = Byte.toUnsignedInt(buffer.get(start + 1));
+            final GraphicControlExtension.DisposalMethod[] methods = GraphicControlExtension.DisposalMethod.values();
+            final int disposal = (packed >>> 2) & 0x07;
+            return new GraphicControlExtension(
+                    disposal < methods.length ? methods[disposal] : GraphicControlExtension.DisposalMethod.UNSPECIFIED,
+                    u16(buffer, start + 2),
+                    (packed & 0x01) != 0 ? Byte.toUnsignedInt(buffer.get(start + 4)) : GraphicControlExtension.NO_TRANSPARENCY);
+        }
+
+        // leaves the buffer positioned at the first data sub-block
+        private static int application(ByteBuffer buffer, int loops) {
+            final int start = buffer.position();
+            final int length = Byte.toUnsignedInt(buffer.get(start));
+            buffer.position(Math.min(buffer.limit(), start + 1 + length));
+            final boolean netscape = length == NETSCAPE.length
+                    && buffer.slice(start + 1, length).mismatch(ByteBuffer.wrap(NETSCAPE)) == -1;
+            final int data = buffer.position();
+            if (netscape && data + 4 <= buffer.limit()
+                    && buffer.get(data) == 3 && buffer.get(data + 1) == 1) {
+                return u16(buffer, data + 2);
+            }
+            return loops;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MappedGif[" +
+                "header=" + header + ", " +
+                "width=" + width() + ", " +
+                "height=" + height() + ", " +
+                "bytes=" + buffer.remaining() + ']';
+    }
+}
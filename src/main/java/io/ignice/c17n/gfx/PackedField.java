@@ -1,22 +1,81 @@
 package io.ignice.c17n.gfx;
 
-import io.ignice.c17n.util.ArrayOps;
-import io.ignice.c17n.util.SanityOps;
 import lombok.NonNull;
 
-public record PackedField(boolean globalColorTableFlag) implements ByteStreamSource {
+import java.nio.ByteBuffer;
 
+/**
+ * Packed field of the {@link LogicalScreenDescriptor}.
+ * <p>
+ * (1) Global Color Table Flag      (1 bit)
+ * (2) Color Resolution             (3 bits)
+ * (3) Sort Flag                    (1 bit)
+ * (4) Size of Global Color Table   (3 bits)
+ * <p>
+ * (1) (2) (3) (4)
+ * _   ___ _   ___
+ * 1   001 0   001  (= 0x91)
+ */
+public record PackedField(boolean globalColorTableFlag,
+                          int colorResolution,
+                          boolean sortFlag,
+                          int sizeOfGlobalColorTable) implements ByteStreamSource {
 
-    // todo xd
-//    public PackedField(@NonNull byte[] bytes) {
-//        SanityOps.requireNonNull(bytes, "bytes");
-//        ByteMath.requireLowerUpperBound(bytes, 2);
-//        this.bytes = ArrayOps.lsbPad(bytes, 2);
-//    }
+    private static final int GLOBAL_COLOR_TABLE_FLAG = 0b10000000;
+    private static final int COLOR_RESOLUTION = 0b01110000;
+    private static final int SORT_FLAG = 0b00001000;
+    private static final int SIZE_OF_GLOBAL_COLOR_TABLE = 0b00000111;
+
+    public PackedField {
+        requireThreeBits(colorResolution, "colorResolution");
+        requireThreeBits(sizeOfGlobalColorTable, "sizeOfGlobalColorTable");
+    }
+
+    public PackedField(boolean globalColorTableFlag) {
+        this(globalColorTableFlag, 0, false, 0);
+    }
+
+    /**
+     * @return a packed field flagging {@code table} as the global color table, with full 8-bit color resolution
+     */
+    public static PackedField of(@NonNull GlobalColorTable table) {
+        return new PackedField(true, 0b111, false, table.sizeBits());
+    }
+
+    public static PackedField of(byte packed) {
+        final int u8 = Byte.toUnsignedInt(packed);
+        return new PackedField((u8 & GLOBAL_COLOR_TABLE_FLAG) != 0,
+                (u8 & COLOR_RESOLUTION) >>> 4,
+                (u8 & SORT_FLAG) != 0,
+                u8 & SIZE_OF_GLOBAL_COLOR_TABLE);
+    }
+
+    public byte packed() {
+        return ByteMath.u8cast((globalColorTableFlag ? GLOBAL_COLOR_TABLE_FLAG : 0)
+                | (colorResolution << 4)
+                | (sortFlag ? SORT_FLAG : 0)
+                | sizeOfGlobalColorTable);
+    }
 
     @Override
     public byte[] bytes() {
-        return new byte[0];
+        return new byte[] { packed() };
+    }
+
+    @Override
+    public int length() {
+        return 1;
+    }
+
+    @Override
+    public void writeTo(@NonNull ByteBuffer buffer) {
+        buffer.put(packed());
+    }
+
+    private static void requireThreeBits(int value, String arg) {
+        if (value != (value & 0b111)) {
+            throw new IllegalArgumentException(String.format("%s (= %d) must fit in 3 bits", arg, value));
+        }
     }
 
 }
@@ -0,0 +1,43 @@
+package io.ignice.c17n.gfx;
+
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link ByteSink} over a pooled direct buffer, which moves to the next size class whenever a claim does not fit.
+ */
+final class PooledByteSink implements ByteSink {
+
+    private final DirectBufferPool pool;
+    private ByteBuffer buffer;
+
+    PooledByteSink(DirectBufferPool pool, int initialCapacity) {
+        this.pool = pool;
+        this.buffer = pool.acquire(Math.max(initialCapacity, MAX_CLAIM));
+    }
+
+    @Override
+    public ByteBuffer claim(int length) {
+        if (buffer.remaining() < length) {
+            final ByteBuffer grown = pool.acquire(Math.max(buffer.capacity() << 1, buffer.position() + length));
+            buffer.flip();
+            grown.put(buffer);
+            pool.release(buffer);
+            buffer = grown;
+        }
+        return buffer;
+    }
+
+    /**
+     * @return everything written so far; the sink must not be written to afterwards
+     */
+    @NonNull
+    DirectByteVector written() {
+        return new DirectByteVector(pool, buffer, buffer.position());
+    }
+
+    void abort() {
+        pool.release(buffer);
+    }
+}
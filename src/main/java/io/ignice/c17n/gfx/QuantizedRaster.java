@@ -0,0 +1,38 @@
+package io.ignice.c17n.gfx;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+
+import java.util.List;
+
+/**
+ * Output of {@link ColorQuantizer}: a palette plus one palette index per pixel.
+ */
+public record QuantizedRaster(@NonNull GlobalColorTable table, @NonNull byte[] indices) {
+
+    public QuantizedRaster {
+        SanityOps.requireNonNull(table, "table");
+        SanityOps.requireNonNull(indices, "indices");
+    }
+
+    public PackedField packedField() {
+        return PackedField.of(table);
+    }
+
+    public IndexedImageData imageData() {
+        return IndexedImageData.of(table, indices);
+    }
+
+    /**
+     * @return a single frame {@link GIF} showing this raster
+     */
+    public GIF gif(int width, int height) {
+        if ((long) width * height != indices.length) {
+            throw new IllegalArgumentException(String.format("%d x %d does not match %d pixels", width, height, indices.length));
+        }
+        final LogicalScreenDescriptor descriptor = new LogicalScreenDescriptor(
+                CanvasWidth.of(width), CanvasHeight.of(height), packedField(), (byte) 0, (byte) 0);
+        return new GIF(Header.GIF89A, descriptor, table,
+                List.of(new ImageBlock(new ImageDescriptor(width, height), imageData())));
+    }
+}
@@ -0,0 +1,194 @@
+package io.ignice.c17n.gfx;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Content-addressed cache of encoded images, keyed by a hash of whatever went into rendering them.
+ * <p>
+ * Capacity is bounded by the total length of the cached vectors rather than by their number, and the least recently
+ * used entries are evicted first. Concurrent misses on the same key share a single render.
+ * <p>
+ * Cached vectors are handed out to every caller, so renderers must not return anything that can be released, such as
+ * a {@link DirectByteVector}.
+ */
+public final class RenderCache {
+
+    public static final long DEFAULT_MAX_BYTES = 32L << 20;
+
+    private final long maxBytes;
+
+    // guarded by itself, in access order
+    private final LinkedHashMap<Key, ByteVector> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private final Map<Key, Mono<ByteVector>> inflight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public RenderCache(long maxBytes) {
+        this.maxBytes = SanityOps.requirePositive(maxBytes, "maxBytes");
+    }
+
+    /**
+     * @return the cached image for {@code key}, or else the result of {@code renderer}, which is subscribed to at
+     * most once however many callers miss on {@code key} at the same time. Errors are not cached.
+     */
+    public Mono<ByteVector> get(@NonNull Key key, @NonNull Supplier<? extends Mono<? extends ByteVector>> renderer) {
+        SanityOps.requireNonNull(key, "key");
+        SanityOps.requireNonNull(renderer, "renderer");
+        return Mono.defer(() -> {
+            final ByteVector cached = lookup(key);
+            if (cached != null) {
+                hits.increment();
+                return Mono.just(cached);
+            }
+            final Mono<ByteVector> render = Mono.<ByteVector>defer(renderer)
+                    .doOnNext(vector -> store(key, vector))
+                    // only ever removes this render: no other can be registered for key until it is gone
+                    .doFinally(signal -> inflight.remove(key))
+                    .cache();
+            final Mono<ByteVector> pending = inflight.putIfAbsent(key, render);
+            if (pending != null) {
+                coalesced.increment();
+                return pending;
+            }
+            // a render which finished between the lookup and the registration has stored its result by now
+            final ByteVector stored = lookup(key);
+            if (stored != null) {
+                inflight.remove(key, render);
+                hits.increment();
+                return Mono.just(stored);
+            }
+            misses.increment();
+            return render;
+        });
+    }
+
+    public void invalidate(@NonNull Key key) {
+        synchronized (entries) {
+            final ByteVector removed = entries.remove(key);
+            if (removed != null) {
+                bytes -= removed.length();
+            }
+        }
+    }
+
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits.sum(), misses.sum(), coalesced.sum(), evictions.sum(), entries.size(), bytes, maxBytes);
+        }
+    }
+
+    private ByteVector lookup(Key key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    private void store(Key key, ByteVector vector) {
+        final int length = vector.length();
+        if (length > maxBytes) {
+            evictions.increment();
+            return;
+        }
+        synchronized (entries) {
+            final ByteVector previous = entries.put(key, vector);
+            bytes += length - (previous == null ? 0 : previous.length());
+            final Iterator<ByteVector> eldest = entries.values().iterator();
+            while (bytes > maxBytes) {
+                bytes -= eldest.next().length();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * 128 bits of a SHA-256 digest of the render inputs.
+     */
+    public record Key(long high, long low) {
+
+        /**
+         * @param kind what is being rendered, so that equal inputs to different renderers do not collide
+         */
+        public static Hasher hasher(@NonNull String kind) {
+            return new Hasher().putString(kind);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Key[%016x%016x]", high, low);
+        }
+    }
+
+    /**
+     * Feeds render inputs into a {@link Key}. Every value is length or type delimited, so that e.g.
+     * {@code ("ab", "c")} and {@code ("a", "bc")} hash differently.
+     */
+    public static final class Hasher {
+
+        private final MessageDigest digest;
+        private final ByteBuffer scratch = ByteBuffer.allocate(Long.BYTES);
+
+        private Hasher() {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is required by every Java platform", e);
+            }
+        }
+
+        public Hasher putLong(long value) {
+            digest.update(scratch.clear().putLong(value).flip());
+            return this;
+        }
+
+        public Hasher putInt(int value) {
+            digest.update(scratch.clear().putInt(value).flip());
+            return this;
+        }
+
+        public Hasher putString(@NonNull String value) {
+            return putBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public Hasher putBytes(@NonNull byte[] value) {
+            putInt(value.length);
+            digest.update(value);
+            return this;
+        }
+
+        public Key key() {
+            final ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+            return new Key(hash.getLong(), hash.getLong());
+        }
+    }
+
+    /**
+     * @param coalesced misses which waited on a render already in flight instead of starting their own
+     * @param evictions entries dropped to stay within {@code maxBytes}, including ones too large to ever fit
+     */
+    public record Stats(long hits, long misses, long coalesced, long evictions, int entries, long bytes, long maxBytes) {
+
+        public double hitRate() {
+            final long requests = hits + misses + coalesced;
+            return requests == 0 ? 0.0 : (double) (hits + coalesced) / requests;
+        }
+    }
+}
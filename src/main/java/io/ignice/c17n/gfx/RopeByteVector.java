@@ -0,0 +1,259 @@
+package io.ignice.c17n.gfx;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Immutable {@link ByteVector} made of other vectors, which are never copied.
+ * <p>
+ * {@link #concat(ByteVector, ByteVector)} and {@link #slice(ByteVector, int, int)} are O(1): they only allocate a
+ * node. The first random access into a concatenation flattens its tree into a table of segments, after which
+ * {@link #get(int)} is a binary search, i.e. O(log n) in the number of segments.
+ */
+public abstract class RopeByteVector implements ByteVector {
+
+    public static final RopeByteVector EMPTY = new Leaf(new byte[0], 0, 0);
+
+    private RopeByteVector() {
+    }
+
+    /**
+     * @return a view of {@code bytes[offset, offset + length)}; later writes to {@code bytes} are visible
+     */
+    @NonNull
+    public static RopeByteVector wrap(@NonNull byte[] bytes, int offset, int length) {
+        SanityOps.requireNonNull(bytes, "bytes");
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        return length == 0 ? EMPTY : new Leaf(bytes, offset, length);
+    }
+
+    @NonNull
+    public static ByteVector concat(@NonNull ByteVector head, @NonNull ByteVector tail) {
+        SanityOps.requireNonNull(head, "head");
+        SanityOps.requireNonNull(tail, "tail");
+        if (tail.length() == 0) return head;
+        if (head.length() == 0) return tail;
+        return new Concat(head, tail);
+    }
+
+    @NonNull
+    public static ByteVector slice(@NonNull ByteVector vector, int from, int to) {
+        SanityOps.requireNonNull(vector, "vector");
+        Objects.checkFromToIndex(from, to, vector.length());
+        if (from == 0 && to == vector.length()) return vector;
+        if (from == to) return EMPTY;
+        if (vector instanceof Leaf leaf) return new Leaf(leaf.bytes, leaf.offset + from, to - from);
+        if (vector instanceof Slice slice) return new Slice(slice.base, slice.from + from, to - from);
+        return new Slice(vector, from, to - from);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public ByteVector slice(int from, int to) {
+        return slice(this, from, to);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[length=" + length() + ']';
+    }
+
+    /**
+     * Lock-free builder for a {@link RopeByteVector}.
+     * <p>
+     * Producers on any number of threads may {@link #append(ByteVector)} concurrently. Each append is a single
+     * CAS of the current rope, and slices end up in the order in which their appends won that race.
+     */
+    public static final class Builder {
+
+        private static final AtomicReferenceFieldUpdater<Builder, ByteVector> vectorUpdater =
+                AtomicReferenceFieldUpdater.newUpdater(Builder.class, ByteVector.class, "vector");
+
+        // DO NOT ACCESS DIRECTLY, use the corresponding AtomicReferenceFieldUpdater instead.
+        private volatile ByteVector vector = EMPTY;
+
+        private Builder() {
+        }
+
+        public Builder append(@NonNull ByteVector slice) {
+            SanityOps.requireNonNull(slice, "slice");
+            vectorUpdater.getAndUpdate(this, head -> concat(head, slice));
+            return this;
+        }
+
+        public Builder append(@NonNull byte[] bytes) {
+            return append(wrap(bytes, 0, bytes.length));
+        }
+
+        public int length() {
+            return vectorUpdater.get(this).length();
+        }
+
+        public ByteVector build() {
+            return vectorUpdater.get(this);
+        }
+    }
+
+    private static final class Leaf extends RopeByteVector {
+
+        private final byte[] bytes;
+        private final int offset;
+        private final int length;
+
+        private Leaf(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public byte get(int i) {
+            return bytes[offset + Objects.checkIndex(i, length)];
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public void copyTo(int from, @NonNull ByteBuffer target, int length) {
+            Objects.checkFromIndexSize(from, length, this.length);
+            target.put(bytes, offset + from, length);
+        }
+    }
+
+    private static final class Slice extends RopeByteVector {
+
+        private final ByteVector base;
+        private final int from;
+        private final int length;
+
+        private Slice(ByteVector base, int from, int length) {
+            this.base = base;
+            this.from = from;
+            this.length = length;
+        }
+
+        @Override
+        public byte get(int i) {
+            return base.get(from + Objects.checkIndex(i, length));
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public void copyTo(int from, @NonNull ByteBuffer target, int length) {
+            Objects.checkFromIndexSize(from, length, this.length);
+            base.copyTo(this.from + from, target, length);
+        }
+    }
+
+    private static final class Concat extends RopeByteVector {
+
+        private final ByteVector left;
+        private final ByteVector right;
+        private final int length;
+
+        // lazily initialized by segments()
+        private volatile Segments segments;
+
+        private Concat(ByteVector left, ByteVector right) {
+            this.left = left;
+            this.right = right;
+            this.length = Math.addExact(left.length(), right.length());
+        }
+
+        @Override
+        public byte get(int i) {
+            Objects.checkIndex(i, length);
+            final Segments segments = segments();
+            final int k = segments.find(i);
+            return segments.vectors[k].get(i - segments.starts[k]);
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public void copyTo(int from, @NonNull ByteBuffer target, int length) {
+            Objects.checkFromIndexSize(from, length, this.length);
+            final Segments segments = segments();
+            int position = from;
+            final int end = from + length;
+            for (int k = segments.find(from); position < end; k++) {
+                final int start = segments.starts[k];
+                final int n = Math.min(end, start + segments.vectors[k].length()) - position;
+                segments.vectors[k].copyTo(position - start, target, n);
+                position += n;
+            }
+        }
+
+        private Segments segments() {
+            Segments result = segments;
+            if (result == null) {
+                segments = result = Segments.of(this);
+            }
+            return result;
+        }
+    }
+
+    private static final class Segments {
+
+        private final ByteVector[] vectors;
+        private final int[] starts;
+
+        private Segments(ByteVector[] vectors, int[] starts) {
+            this.vectors = vectors;
+            this.starts = starts;
+        }
+
+        // iterative, since appending one slice at a time builds arbitrarily deep left spines
+        private static Segments of(Concat root) {
+            final List<ByteVector> vectors = new ArrayList<>();
+            final Deque<ByteVector> pending = new ArrayDeque<>();
+            pending.push(root);
+            while (!pending.isEmpty()) {
+                final ByteVector vector = pending.pop();
+                if (vector instanceof Concat concat) {
+                    final Segments built = concat.segments;
+                    if (built != null && concat != root) {
+                        vectors.addAll(Arrays.asList(built.vectors));
+                    } else {
+                        pending.push(concat.right);
+                        pending.push(concat.left);
+                    }
+                } else {
+                    vectors.add(vector);
+                }
+            }
+            final int[] starts = new int[vectors.size()];
+            for (int k = 1; k < starts.length; k++) {
+                starts[k] = starts[k - 1] + vectors.get(k - 1).length();
+            }
+            return new Segments(vectors.toArray(ByteVector[]::new), starts);
+        }
+
+        private int find(int i) {
+            final int k = Arrays.binarySearch(starts, i);
+            return k >= 0 ? k : -k - 2;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package io.ignice.c17n.outbound;
+
+import discord4j.common.util.Snowflake;
+import discord4j.rest.RestClient;
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+import reactor.core.publisher.Mono;
+
+/**
+ * Sends through Discord4J's REST client without fetching the channel first.
+ * <p>
+ * Discord4J keeps the rate limit headers to itself, so this never reports a {@link RateLimit} and the scheduler
+ * sticks to {@link RateLimit#CHANNEL_MESSAGES}; Discord4J's own router still backs off on a 429.
+ */
+public final class DiscordOutboundSink implements OutboundSink {
+
+    private final RestClient client;
+
+    public DiscordOutboundSink(@NonNull RestClient client) {
+        this.client = SanityOps.requireNonNull(client, "client");
+    }
+
+    @Override
+    public Mono<RateLimit> send(long channelId, @NonNull String content) {
+        return client.getChannelById(Snowflake.of(channelId))
+                .createMessage(content)
+                .then(Mono.empty());
+    }
+}
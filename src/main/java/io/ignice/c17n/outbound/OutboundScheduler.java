@@ -0,0 +1,231 @@
+package io.ignice.c17n.outbound;
+
+import io.ignice.c17n.util.MessageOps;
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Queues outbound messages per channel and sends them at the pace Discord allows.
+ * <p>
+ * Each channel has one queue per {@link Priority}, a local {@link TokenBucket} and at most one request in flight.
+ * The first message to a quiet channel waits for the merge window, and everything queued for the same channel by
+ * the time it is sent (or while the previous request was in flight) is merged into as few messages as the 2000
+ * character limit allows. {@link Priority#INTERACTIVE} replies always go before {@link Priority#BULK} output.
+ */
+public final class OutboundScheduler {
+
+    public enum Priority {
+        /**
+         * Direct replies to a command, which a user is waiting on.
+         */
+        INTERACTIVE,
+        /**
+         * Long output such as list pages, which may wait behind replies.
+         */
+        BULK
+    }
+
+    public static final Duration DEFAULT_MERGE_WINDOW = Duration.ofMillis(50);
+    public static final int DEFAULT_MAX_QUEUED = 256;
+
+    private final OutboundSink sink;
+    private final Scheduler scheduler;
+    private final long mergeWindowNanos;
+    private final int maxQueued;
+    private final RateLimit initialRateLimit;
+
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    public OutboundScheduler(@NonNull OutboundSink sink) {
+        this(sink, Schedulers.parallel(), DEFAULT_MERGE_WINDOW, DEFAULT_MAX_QUEUED, RateLimit.CHANNEL_MESSAGES);
+    }
+
+    /**
+     * @param scheduler        runs the per channel drains and is the clock for the token buckets
+     * @param mergeWindow      how long the first message to a quiet channel waits for others to merge with
+     * @param maxQueued        messages a single channel may have waiting before new ones are rejected
+     * @param initialRateLimit the bucket every channel starts with, until the sink reports otherwise
+     */
+    public OutboundScheduler(@NonNull OutboundSink sink, @NonNull Scheduler scheduler, @NonNull Duration mergeWindow,
+                             int maxQueued, @NonNull RateLimit initialRateLimit) {
+        this.sink = SanityOps.requireNonNull(sink, "sink");
+        this.scheduler = SanityOps.requireNonNull(scheduler, "scheduler");
+        this.mergeWindowNanos = SanityOps.requireNonNull(mergeWindow, "mergeWindow").toNanos();
+        this.maxQueued = SanityOps.requirePositive(maxQueued, "maxQueued");
+        this.initialRateLimit = SanityOps.requireNonNull(initialRateLimit, "initialRateLimit");
+    }
+
+    /**
+     * Queues {@code content} for {@code channelId} when subscribed to.
+     *
+     * @return a mono which completes once the message that carried {@code content} was sent, or fails with a
+     * {@link RejectedExecutionException} if the channel's queue is full
+     */
+    public Mono<Void> submit(long channelId, @NonNull String content, @NonNull Priority priority) {
+        SanityOps.requireNonNull(content, "content");
+        SanityOps.requireNonNull(priority, "priority");
+        return Mono.create(callback -> {
+            final Item item = new Item(truncate(content), priority, callback);
+            final boolean[] accepted = new boolean[1];
+            // enqueueing under the map's lock keeps evictIfIdle from dropping a channel that just got work
+            channels.compute(channelId, (id, channel) -> {
+                final Channel target = channel == null ? new Channel(id) : channel;
+                accepted[0] = target.enqueue(item);
+                return target;
+            });
+            if (accepted[0]) {
+                submitted.increment();
+            } else {
+                rejected.increment();
+                callback.error(new RejectedExecutionException(String.format("outbound queue of channel %d is full", channelId)));
+            }
+        });
+    }
+
+    public Stats stats() {
+        return new Stats(submitted.sum(), sent.sum(), rejected.sum(), throttled.sum(), channels.size());
+    }
+
+    private long now() {
+        return scheduler.now(TimeUnit.NANOSECONDS);
+    }
+
+    private static String truncate(String content) {
+        return content.length() > MessageOps.MAX_LENGTH ? content.substring(0, MessageOps.MAX_LENGTH) : content;
+    }
+
+    private record Item(String content, Priority priority, MonoSink<Void> callback) {
+    }
+
+    private final class Channel {
+
+        private final long id;
+
+        // guarded by this
+        private final Deque<Item> interactive = new ArrayDeque<>();
+        private final Deque<Item> bulk = new ArrayDeque<>();
+        private final TokenBucket bucket = new TokenBucket(initialRateLimit);
+        private boolean active; // a drain is scheduled or a request is in flight
+
+        private Channel(long id) {
+            this.id = id;
+        }
+
+        private synchronized boolean enqueue(Item item) {
+            if (interactive.size() + bulk.size() >= maxQueued) {
+                return false;
+            }
+            (item.priority() == Priority.INTERACTIVE ? interactive : bulk).add(item);
+            if (!active) {
+                active = true;
+                scheduler.schedule(this::drain, mergeWindowNanos, TimeUnit.NANOSECONDS);
+            }
+            return true;
+        }
+
+        private void drain() {
+            final List<Item> batch;
+            synchronized (this) {
+                if (interactive.isEmpty() && bulk.isEmpty()) {
+                    active = false;
+                    return;
+                }
+                final long now = now();
+                final long wait = bucket.tryAcquire(now);
+                if (wait > 0) {
+                    throttled.increment();
+                    scheduler.schedule(this::drain, wait, TimeUnit.NANOSECONDS);
+                    return;
+                }
+                batch = take(interactive.isEmpty() ? bulk : interactive);
+            }
+            final StringBuilder content = new StringBuilder(MessageOps.MAX_LENGTH);
+            for (Item item : batch) {
+                if (content.length() > 0) content.append('\n');
+                content.append(item.content());
+            }
+            Mono.defer(() -> sink.send(id, content.toString()))
+                    .subscribe(rateLimit -> {
+                        synchronized (this) {
+                            bucket.update(rateLimit, now());
+                        }
+                    }, error -> {
+                        batch.forEach(item -> item.callback().error(error));
+                        next();
+                    }, () -> {
+                        sent.increment();
+                        batch.forEach(item -> item.callback().success());
+                        next();
+                    });
+        }
+
+        // as many queued items as fit in one message
+        private List<Item> take(Deque<Item> queue) {
+            final List<Item> batch = new ArrayList<>();
+            int length = -1;
+            while (!queue.isEmpty() && length + 1 + queue.peekFirst().content().length() <= MessageOps.MAX_LENGTH) {
+                final Item item = queue.pollFirst();
+                length += 1 + item.content().length();
+                batch.add(item);
+            }
+            return batch;
+        }
+
+        private void next() {
+            final long idleUntil;
+            synchronized (this) {
+                if (!interactive.isEmpty() || !bulk.isEmpty()) {
+                    scheduler.schedule(this::drain);
+                    return;
+                }
+                active = false;
+                idleUntil = bucket.resetAt();
+            }
+            final long wait = idleUntil - now();
+            if (wait > 0) {
+                scheduler.schedule(this::evictIfIdle, wait, TimeUnit.NANOSECONDS);
+            } else {
+                evictIfIdle();
+            }
+        }
+
+        // never called while holding this channel's lock, which would invert the map -> channel lock order
+        private void evictIfIdle() {
+            channels.computeIfPresent(id, (key, channel) -> channel == this && isIdle() ? null : channel);
+        }
+
+        private synchronized boolean isIdle() {
+            return !active && interactive.isEmpty() && bulk.isEmpty() && bucket.isFull(now());
+        }
+    }
+
+    /**
+     * @param submitted messages accepted into a queue
+     * @param sent      requests made, each carrying one or more merged messages
+     * @param rejected  messages turned away because their channel's queue was full
+     * @param throttled drains postponed because the channel's bucket was empty
+     * @param channels  channels with queued messages or a bucket that has not reset yet
+     */
+    public record Stats(long submitted, long sent, long rejected, long throttled, int channels) {
+    }
+}
@@ -0,0 +1,18 @@
+package io.ignice.c17n.outbound;
+
+import lombok.NonNull;
+import reactor.core.publisher.Mono;
+
+/**
+ * Where the {@link OutboundScheduler} delivers messages, i.e. Discord's create message endpoint.
+ */
+@FunctionalInterface
+public interface OutboundSink {
+
+    /**
+     * Posts {@code content} to {@code channelId}.
+     *
+     * @return the channel's bucket after the request, if the transport exposes it, or else an empty mono
+     */
+    Mono<RateLimit> send(long channelId, @NonNull String content);
+}
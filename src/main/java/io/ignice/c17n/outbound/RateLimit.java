@@ -0,0 +1,32 @@
+package io.ignice.c17n.outbound;
+
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * The state of a Discord rate limit bucket, as reported by the {@code X-RateLimit-Limit},
+ * {@code X-RateLimit-Remaining} and {@code X-RateLimit-Reset-After} response headers.
+ *
+ * @see <a href="https://discord.com/developers/docs/topics/rate-limits">rate limits</a>
+ */
+public record RateLimit(int limit, int remaining, @NonNull Duration resetAfter) {
+
+    /**
+     * Discord's documented limit for messages sent to a single channel.
+     */
+    public static final RateLimit CHANNEL_MESSAGES = new RateLimit(5, 5, Duration.ofSeconds(5));
+
+    public RateLimit {
+        SanityOps.requirePositive(limit, "limit");
+        SanityOps.requireNonNegative(remaining, "remaining");
+        SanityOps.requireNonNull(resetAfter, "resetAfter");
+        if (remaining > limit) {
+            throw new IllegalArgumentException(String.format("remaining (= %d) must be at most limit (= %d)", remaining, limit));
+        }
+        if (resetAfter.isNegative()) {
+            throw new IllegalArgumentException(String.format("resetAfter (= %s) must not be negative", resetAfter));
+        }
+    }
+}
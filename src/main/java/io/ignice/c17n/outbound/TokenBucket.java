@@ -0,0 +1,54 @@
+package io.ignice.c17n.outbound;
+
+/**
+ * Local mirror of a Discord rate limit bucket: {@code limit} requests per window, where a window starts with the
+ * first request after the previous one has reset. Not thread-safe.
+ */
+final class TokenBucket {
+
+    private final long windowNanos;
+    private int limit;
+    private int remaining;
+    private long resetAt = Long.MIN_VALUE;
+
+    TokenBucket(RateLimit initial) {
+        this.windowNanos = initial.resetAfter().toNanos();
+        this.limit = initial.limit();
+        this.remaining = initial.remaining();
+    }
+
+    /**
+     * @return 0 if a token was taken, or else how many nanoseconds until one is available
+     */
+    long tryAcquire(long now) {
+        if (now >= resetAt) {
+            remaining = limit;
+            resetAt = now + windowNanos;
+        }
+        if (remaining > 0) {
+            remaining--;
+            return 0;
+        }
+        return resetAt - now;
+    }
+
+    /**
+     * Adopts the state Discord reported, which wins over the local estimate.
+     */
+    void update(RateLimit rateLimit, long now) {
+        limit = rateLimit.limit();
+        remaining = rateLimit.remaining();
+        resetAt = now + rateLimit.resetAfter().toNanos();
+    }
+
+    /**
+     * @return whether forgetting this bucket could not let a burst through
+     */
+    boolean isFull(long now) {
+        return now >= resetAt || remaining >= limit;
+    }
+
+    long resetAt() {
+        return resetAt;
+    }
+}
@@ -0,0 +1,77 @@
+package io.ignice.c17n.shard;
+
+import discord4j.core.event.dispatch.DispatchEventMapper;
+import discord4j.core.shard.GatewayBootstrap;
+import discord4j.discordjson.json.MemberData;
+import discord4j.discordjson.json.MessageData;
+import discord4j.discordjson.json.PresenceData;
+import discord4j.discordjson.json.UserData;
+import discord4j.discordjson.json.VoiceStateData;
+import discord4j.gateway.GatewayOptions;
+import discord4j.store.api.mapping.MappingStoreService;
+import discord4j.store.api.noop.NoOpStoreService;
+import discord4j.store.jdk.JdkStoreService;
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+
+import java.util.Locale;
+
+/**
+ * How much of the gateway a process subscribes to and keeps in memory.
+ *
+ * @param minimize whether to ask only for the intents the handlers need, and to discard dispatches no handler wants
+ *                 before they are mapped to entities
+ * @param store    which entities Discord4J keeps in its store
+ */
+public record GatewayProfile(boolean minimize, Store store) {
+
+    public enum Store {
+        /**
+         * Discord4J's default: every entity, in unbounded maps.
+         */
+        FULL,
+        /**
+         * Guilds, channels, roles and emojis, whose number is bounded by the number of guilds. Messages, members,
+         * users, presences and voice states, which grow with traffic and guild size, are not stored.
+         */
+        MINIMAL,
+        /**
+         * Nothing; every lookup goes to REST.
+         */
+        NONE;
+
+        public static Store of(@NonNull String name) {
+            return valueOf(name.strip().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public GatewayProfile {
+        SanityOps.requireNonNull(store, "store");
+    }
+
+    /**
+     * Discord4J's defaults, i.e. every non-privileged intent and a full store.
+     */
+    public static GatewayProfile full() {
+        return new GatewayProfile(false, Store.FULL);
+    }
+
+    public <O extends GatewayOptions> GatewayBootstrap<O> configure(@NonNull GatewayBootstrap<O> bootstrap,
+                                                                   @NonNull Subscriptions subscriptions) {
+        SanityOps.requireNonNull(bootstrap, "bootstrap");
+        SanityOps.requireNonNull(subscriptions, "subscriptions");
+        GatewayBootstrap<O> result = switch (store) {
+            case FULL -> bootstrap;
+            case MINIMAL -> bootstrap.setStoreService(MappingStoreService.create()
+                    .setMappings(new NoOpStoreService(), MessageData.class, MemberData.class, UserData.class,
+                            PresenceData.class, VoiceStateData.class)
+                    .setFallback(new JdkStoreService()));
+            case NONE -> bootstrap.setStoreService(new NoOpStoreService());
+        };
+        if (minimize) {
+            result = result.setEnabledIntents(subscriptions.intents())
+                    .setDispatchEventMapper(subscriptions.mapper(DispatchEventMapper.emitEvents()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,113 @@
+package io.ignice.c17n.shard;
+
+import discord4j.core.event.domain.Event;
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Splits the gateway's event stream by shard, so that each shard is handled and measured on its own.
+ * <p>
+ * With dedicated schedulers, every shard hands its events to a single thread of its own; a burst in one large guild
+ * then only delays the other guilds on its shard, and handling scales with the number of shards in the process.
+ * Otherwise, events stay on the gateway thread that received them.
+ */
+public final class ShardPipeline implements Disposable {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardPipeline.class);
+
+    private final Sharding sharding;
+    private final Map<Integer, Shard> shards = new ConcurrentHashMap<>();
+
+    public ShardPipeline(@NonNull Sharding sharding) {
+        this.sharding = SanityOps.requireNonNull(sharding, "sharding");
+    }
+
+    public Sharding sharding() {
+        return sharding;
+    }
+
+    /**
+     * Runs {@code handler} over {@code events}, shard by shard. Handler errors are logged and counted, and do not
+     * cancel the stream.
+     */
+    public Flux<Object> dispatch(@NonNull Flux<? extends Event> events, @NonNull Function<? super Event, ? extends Publisher<?>> handler) {
+        SanityOps.requireNonNull(events, "events");
+        SanityOps.requireNonNull(handler, "handler");
+        return events
+                .groupBy(event -> event.getShardInfo().getIndex())
+                .flatMap(group -> shard(group.key()).handle(group, handler), Integer.MAX_VALUE);
+    }
+
+    public List<Stats> stats() {
+        return shards.values().stream()
+                .map(Shard::stats)
+                .sorted(Comparator.comparingInt(Stats::index))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void dispose() {
+        shards.values().forEach(shard -> shard.scheduler.dispose());
+    }
+
+    private Shard shard(int index) {
+        return shards.computeIfAbsent(index, key -> new Shard(key, sharding.dedicatedSchedulers()
+                ? Schedulers.newSingle("shard-" + key, true)
+                : Schedulers.immediate()));
+    }
+
+    /**
+     * @param events   events received
+     * @param inFlight events whose handler has not completed yet
+     * @param errors   handlers that failed
+     */
+    public record Stats(int index, long events, long inFlight, long errors) {
+    }
+
+    private static final class Shard {
+
+        private final int index;
+        private final Scheduler scheduler;
+        private final LongAdder events = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        private Shard(int index, Scheduler scheduler) {
+            this.index = index;
+            this.scheduler = scheduler;
+        }
+
+        private Flux<Object> handle(Flux<? extends Event> group, Function<? super Event, ? extends Publisher<?>> handler) {
+            return group
+                    .doOnNext(event -> events.increment())
+                    .publishOn(scheduler)
+                    .flatMap(event -> Flux.defer(() -> Flux.<Object>from(handler.apply(event)))
+                            .doOnError(throwable -> {
+                                errors.increment();
+                                log.error("Shard {} failed to handle {}", index, event.getClass().getSimpleName(), throwable);
+                            })
+                            .onErrorResume(throwable -> Flux.empty())
+                            .doFinally(signal -> completed.increment()));
+        }
+
+        private Stats stats() {
+            final long received = events.sum();
+            return new Stats(index, received, received - completed.sum(), errors.sum());
+        }
+    }
+}
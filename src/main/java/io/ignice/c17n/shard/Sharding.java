@@ -0,0 +1,74 @@
+package io.ignice.c17n.shard;
+
+import discord4j.core.shard.ShardingStrategy;
+import discord4j.gateway.ShardInfo;
+import lombok.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Which shards this process runs, and how their events are scheduled.
+ *
+ * @param count                total number of shards across all processes, or {@link #RECOMMENDED} to ask Discord
+ * @param fromIndex            first shard index run by this process
+ * @param toIndex              index after the last shard run by this process, or {@link #ALL} for every shard
+ * @param dedicatedSchedulers  whether each shard's events are handled on its own thread instead of the gateway's
+ */
+public record Sharding(int count, int fromIndex, int toIndex, boolean dedicatedSchedulers) {
+
+    public static final int RECOMMENDED = -1;
+    public static final int ALL = -1;
+
+    public Sharding {
+        if (count != RECOMMENDED && count <= 0) {
+            throw new IllegalArgumentException(String.format("count (= %d) must be positive or RECOMMENDED", count));
+        }
+        if (fromIndex < 0) {
+            throw new IllegalArgumentException(String.format("fromIndex (= %d) must be non-negative", fromIndex));
+        }
+        if (toIndex != ALL && toIndex <= fromIndex) {
+            throw new IllegalArgumentException(String.format("toIndex (= %d) must be greater than fromIndex (= %d)", toIndex, fromIndex));
+        }
+        if (count != RECOMMENDED && toIndex > count) {
+            throw new IllegalArgumentException(String.format("toIndex (= %d) must be at most count (= %d)", toIndex, count));
+        }
+    }
+
+    /**
+     * A single process running every shard Discord recommends, on the gateway's own threads.
+     */
+    public static Sharding recommended() {
+        return new Sharding(RECOMMENDED, 0, ALL, false);
+    }
+
+    /**
+     * Parses the {@code bot.shards.*} properties.
+     *
+     * @param count   a shard count, or {@code auto} for Discord's recommendation
+     * @param indices an inclusive range such as {@code 0-3}, a single index, or blank for every shard
+     */
+    public static Sharding of(@NonNull String count, @NonNull String indices, boolean dedicatedSchedulers) {
+        final String trimmedCount = count.strip().toLowerCase(Locale.ROOT);
+        final int shards = trimmedCount.isEmpty() || trimmedCount.equals("auto") ? RECOMMENDED : Integer.parseInt(trimmedCount);
+        final String range = indices.strip();
+        if (range.isEmpty()) {
+            return new Sharding(shards, 0, ALL, dedicatedSchedulers);
+        }
+        final int dash = range.indexOf('-');
+        final int from = Integer.parseInt(dash < 0 ? range : range.substring(0, dash).strip());
+        final int to = dash < 0 ? from : Integer.parseInt(range.substring(dash + 1).strip());
+        return new Sharding(shards, from, to + 1, dedicatedSchedulers);
+    }
+
+    public boolean contains(int index) {
+        return index >= fromIndex && (toIndex == ALL || index < toIndex);
+    }
+
+    public ShardingStrategy strategy() {
+        if (fromIndex == 0 && toIndex == ALL) {
+            return count == RECOMMENDED ? ShardingStrategy.recommended() : ShardingStrategy.fixed(count);
+        }
+        final var builder = ShardingStrategy.builder().filter((ShardInfo shard) -> contains(shard.getIndex()));
+        return (count == RECOMMENDED ? builder : builder.count(count)).build();
+    }
+}
@@ -0,0 +1,206 @@
+package io.ignice.c17n.shard;
+
+import discord4j.core.event.ReactiveEventAdapter;
+import discord4j.core.event.dispatch.DispatchContext;
+import discord4j.core.event.dispatch.DispatchEventMapper;
+import discord4j.core.event.domain.Event;
+import discord4j.core.event.domain.InviteCreateEvent;
+import discord4j.core.event.domain.InviteDeleteEvent;
+import discord4j.core.event.domain.PresenceUpdateEvent;
+import discord4j.core.event.domain.VoiceStateUpdateEvent;
+import discord4j.core.event.domain.WebhooksUpdateEvent;
+import discord4j.core.event.domain.channel.PinsUpdateEvent;
+import discord4j.core.event.domain.channel.TypingStartEvent;
+import discord4j.core.event.domain.guild.BanEvent;
+import discord4j.core.event.domain.guild.EmojisUpdateEvent;
+import discord4j.core.event.domain.guild.IntegrationsUpdateEvent;
+import discord4j.core.event.domain.guild.MemberChunkEvent;
+import discord4j.core.event.domain.guild.MemberJoinEvent;
+import discord4j.core.event.domain.guild.MemberLeaveEvent;
+import discord4j.core.event.domain.guild.MemberUpdateEvent;
+import discord4j.core.event.domain.guild.UnbanEvent;
+import discord4j.core.event.domain.message.MessageBulkDeleteEvent;
+import discord4j.core.event.domain.message.MessageCreateEvent;
+import discord4j.core.event.domain.message.MessageDeleteEvent;
+import discord4j.core.event.domain.message.MessageUpdateEvent;
+import discord4j.core.event.domain.message.ReactionAddEvent;
+import discord4j.core.event.domain.message.ReactionRemoveAllEvent;
+import discord4j.core.event.domain.message.ReactionRemoveEmojiEvent;
+import discord4j.core.event.domain.message.ReactionRemoveEvent;
+import discord4j.discordjson.json.gateway.ChannelPinsUpdate;
+import discord4j.discordjson.json.gateway.GuildIntegrationsUpdate;
+import discord4j.discordjson.json.gateway.InviteCreate;
+import discord4j.discordjson.json.gateway.InviteDelete;
+import discord4j.discordjson.json.gateway.MessageDelete;
+import discord4j.discordjson.json.gateway.MessageDeleteBulk;
+import discord4j.discordjson.json.gateway.MessageReactionAdd;
+import discord4j.discordjson.json.gateway.MessageReactionRemove;
+import discord4j.discordjson.json.gateway.MessageReactionRemoveAll;
+import discord4j.discordjson.json.gateway.MessageReactionRemoveEmoji;
+import discord4j.discordjson.json.gateway.MessageUpdate;
+import discord4j.discordjson.json.gateway.PresenceUpdate;
+import discord4j.discordjson.json.gateway.TypingStart;
+import discord4j.discordjson.json.gateway.WebhooksUpdate;
+import discord4j.gateway.intent.Intent;
+import discord4j.gateway.intent.IntentSet;
+import io.ignice.c17n.util.SanityOps;
+import lombok.NonNull;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The events an application handles, and what that means for its gateway connection: which intents to ask for,
+ * and which dispatches can be discarded before Discord4J maps them to entities and updates its store.
+ */
+public final class Subscriptions {
+
+    // intents needed by events beyond GUILDS, which every bot needs for its guilds and channels to be known
+    private static final Map<Class<? extends Event>, IntentSet> INTENTS = Map.ofEntries(
+            Map.entry(MessageCreateEvent.class, IntentSet.of(Intent.GUILD_MESSAGES, Intent.DIRECT_MESSAGES)),
+            Map.entry(MessageUpdateEvent.class, IntentSet.of(Intent.GUILD_MESSAGES, Intent.DIRECT_MESSAGES)),
+            Map.entry(MessageDeleteEvent.class, IntentSet.of(Intent.GUILD_MESSAGES, Intent.DIRECT_MESSAGES)),
+            Map.entry(MessageBulkDeleteEvent.class, IntentSet.of(Intent.GUILD_MESSAGES)),
+            Map.entry(ReactionAddEvent.class, IntentSet.of(Intent.GUILD_MESSAGE_REACTIONS, Intent.DIRECT_MESSAGE_REACTIONS)),
+            Map.entry(ReactionRemoveEvent.class, IntentSet.of(Intent.GUILD_MESSAGE_REACTIONS, Intent.DIRECT_MESSAGE_REACTIONS)),
+            Map.entry(ReactionRemoveAllEvent.class, IntentSet.of(Intent.GUILD_MESSAGE_REACTIONS, Intent.DIRECT_MESSAGE_REACTIONS)),
+            Map.entry(ReactionRemoveEmojiEvent.class, IntentSet.of(Intent.GUILD_MESSAGE_REACTIONS, Intent.DIRECT_MESSAGE_REACTIONS)),
+            Map.entry(TypingStartEvent.class, IntentSet.of(Intent.GUILD_MESSAGE_TYPING, Intent.DIRECT_MESSAGE_TYPING)),
+            Map.entry(PinsUpdateEvent.class, IntentSet.of(Intent.DIRECT_MESSAGES)),
+            Map.entry(PresenceUpdateEvent.class, IntentSet.of(Intent.GUILD_PRESENCES)),
+            Map.entry(MemberJoinEvent.class, IntentSet.of(Intent.GUILD_MEMBERS)),
+            Map.entry(MemberLeaveEvent.class, IntentSet.of(Intent.GUILD_MEMBERS)),
+            Map.entry(MemberUpdateEvent.class, IntentSet.of(Intent.GUILD_MEMBERS)),
+            Map.entry(MemberChunkEvent.class, IntentSet.of(Intent.GUILD_MEMBERS)),
+            Map.entry(BanEvent.class, IntentSet.of(Intent.GUILD_BANS)),
+            Map.entry(UnbanEvent.class, IntentSet.of(Intent.GUILD_BANS)),
+            Map.entry(EmojisUpdateEvent.class, IntentSet.of(Intent.GUILD_EMOJIS)),
+            Map.entry(IntegrationsUpdateEvent.class, IntentSet.of(Intent.GUILD_INTEGRATIONS)),
+            Map.entry(WebhooksUpdateEvent.class, IntentSet.of(Intent.GUILD_WEBHOOKS)),
+            Map.entry(InviteCreateEvent.class, IntentSet.of(Intent.GUILD_INVITES)),
+            Map.entry(InviteDeleteEvent.class, IntentSet.of(Intent.GUILD_INVITES)),
+            Map.entry(VoiceStateUpdateEvent.class, IntentSet.of(Intent.GUILD_VOICE_STATES)));
+
+    // dispatches whose only effect besides their event is to keep the store up to date, so they are safe to discard
+    private static final Map<Class<?>, Class<? extends Event>> DISCARDABLE = Map.ofEntries(
+            Map.entry(MessageUpdate.class, MessageUpdateEvent.class),
+            Map.entry(MessageDelete.class, MessageDeleteEvent.class),
+            Map.entry(MessageDeleteBulk.class, MessageBulkDeleteEvent.class),
+            Map.entry(MessageReactionAdd.class, ReactionAddEvent.class),
+            Map.entry(MessageReactionRemove.class, ReactionRemoveEvent.class),
+            Map.entry(MessageReactionRemoveAll.class, ReactionRemoveAllEvent.class),
+            Map.entry(MessageReactionRemoveEmoji.class, ReactionRemoveEmojiEvent.class),
+            Map.entry(TypingStart.class, TypingStartEvent.class),
+            Map.entry(ChannelPinsUpdate.class, PinsUpdateEvent.class),
+            Map.entry(PresenceUpdate.class, PresenceUpdateEvent.class),
+            Map.entry(WebhooksUpdate.class, WebhooksUpdateEvent.class),
+            Map.entry(InviteCreate.class, InviteCreateEvent.class),
+            Map.entry(InviteDelete.class, InviteDeleteEvent.class),
+            Map.entry(GuildIntegrationsUpdate.class, IntegrationsUpdateEvent.class));
+
+    private final Set<Class<? extends Event>> events;
+    private final LongAdder discarded = new LongAdder();
+
+    // whether a dispatch of the given (immutable implementation) class may be discarded
+    private final ClassValue<Boolean> discardable = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> dispatch) {
+            return DISCARDABLE.entrySet().stream()
+                    .anyMatch(entry -> entry.getKey().isAssignableFrom(dispatch) && !handles(entry.getValue()));
+        }
+    };
+
+    private Subscriptions(Set<Class<? extends Event>> events) {
+        this.events = Set.copyOf(events);
+    }
+
+    public static Subscriptions of(@NonNull Collection<Class<? extends Event>> events) {
+        return new Subscriptions(new HashSet<>(SanityOps.requireNonNull(events, "events")));
+    }
+
+    /**
+     * @return the events whose {@code on*} method {@code adapter} overrides; all of them if it overrides
+     * {@link ReactiveEventAdapter#hookOnEvent(Event)}
+     */
+    public static Subscriptions of(@NonNull Class<? extends ReactiveEventAdapter> adapter) {
+        SanityOps.requireNonNull(adapter, "adapter");
+        final Set<Class<? extends Event>> events = new HashSet<>();
+        for (Class<?> type = adapter; type != ReactiveEventAdapter.class; type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                if (!Modifier.isStatic(method.getModifiers()) && method.getParameterCount() == 1
+                        && Event.class.isAssignableFrom(method.getParameterTypes()[0]) && overridesAdapter(method)) {
+                    events.add(method.getParameterTypes()[0].asSubclass(Event.class));
+                }
+            }
+        }
+        return new Subscriptions(events);
+    }
+
+    private static boolean overridesAdapter(Method method) {
+        try {
+            ReactiveEventAdapter.class.getMethod(method.getName(), method.getParameterTypes());
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    public Set<Class<? extends Event>> events() {
+        return events;
+    }
+
+    public boolean handles(@NonNull Class<? extends Event> event) {
+        return events.stream().anyMatch(handled -> handled.isAssignableFrom(event));
+    }
+
+    /**
+     * @return the intents the handled events need, which is every non-privileged one if all events are handled
+     */
+    public IntentSet intents() {
+        if (events.contains(Event.class)) {
+            return IntentSet.nonPrivileged();
+        }
+        IntentSet intents = IntentSet.of(Intent.GUILDS);
+        for (Map.Entry<Class<? extends Event>, IntentSet> entry : INTENTS.entrySet()) {
+            if (handles(entry.getKey())) {
+                intents = intents.or(entry.getValue());
+            }
+        }
+        return intents;
+    }
+
+    /**
+     * @return a mapper which discards dispatches no handler is interested in, and hands all others to {@code delegate}
+     */
+    public DispatchEventMapper mapper(@NonNull DispatchEventMapper delegate) {
+        SanityOps.requireNonNull(delegate, "delegate");
+        return new DispatchEventMapper() {
+            @Override
+            public <D, E extends Event> Mono<E> handle(DispatchContext<D> context) {
+                if (discardable.get(context.getDispatch().getClass())) {
+                    discarded.increment();
+                    return Mono.empty();
+                }
+                return delegate.handle(context);
+            }
+        };
+    }
+
+    /**
+     * @return dispatches discarded by {@link #mapper(DispatchEventMapper)} so far
+     */
+    public long discarded() {
+        return discarded.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "Subscriptions[events=" + events + ", intents=" + intents() + ']';
+    }
+}
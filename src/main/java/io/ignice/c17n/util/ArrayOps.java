@@ -25,7 +25,7 @@ public class ArrayOps {
         } else {
             final int delta = minLength - array.length;
             @SuppressWarnings("unchecked")
-            final T[] unchecked = (T[]) new Object[delta];
+            final T[] unchecked = (T[]) new Object[minLength];
             System.arraycopy(array, 0, unchecked, delta, array.length);
             return unchecked;
         }
@@ -37,7 +37,7 @@ public class ArrayOps {
             return array;
         } else {
             final int delta = minLength - array.length;
-            final byte[] unchecked = new byte[delta];
+            final byte[] unchecked = new byte[minLength];
             System.arraycopy(array, 0, unchecked, delta, array.length);
             return unchecked;
         }
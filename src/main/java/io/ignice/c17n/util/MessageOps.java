@@ -0,0 +1,43 @@
+package io.ignice.c17n.util;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@UtilityClass
+public class MessageOps {
+
+    /**
+     * Discord's limit on the content of a single message.
+     */
+    public static final int MAX_LENGTH = 2000;
+
+    /**
+     * Packs {@code lines} into as few newline separated messages of at most {@code maxLength} characters as their
+     * order allows. Lines which are too long on their own are truncated.
+     */
+    @NonNull
+    public static Flux<String> pack(@NonNull Flux<String> lines, int maxLength) {
+        SanityOps.requirePositive(maxLength, "maxLength");
+        return Flux.defer(() -> {
+            final StringBuilder message = new StringBuilder(maxLength);
+            return lines
+                    .map(line -> line.length() > maxLength ? line.substring(0, maxLength) : line)
+                    .concatMap(line -> {
+                        if (message.length() > 0 && message.length() + 1 + line.length() > maxLength) {
+                            final String full = message.toString();
+                            message.setLength(0);
+                            message.append(line);
+                            return Mono.just(full);
+                        }
+                        if (message.length() > 0) {
+                            message.append('\n');
+                        }
+                        message.append(line);
+                        return Mono.empty();
+                    })
+                    .concatWith(Mono.fromSupplier(() -> message.length() > 0 ? message.toString() : null));
+        });
+    }
+}
@@ -0,0 +1,78 @@
+package io.ignice.c17n.util;
+
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Periodically logs the stats of registered sources, in the order they were registered.
+ */
+public final class StatsLog implements Disposable {
+
+    private static final Logger log = LoggerFactory.getLogger(StatsLog.class);
+
+    private final List<Source> sources = new CopyOnWriteArrayList<>();
+    private final BiConsumer<String, Object> sink;
+    private final Disposable timer;
+
+    public StatsLog(@NonNull Duration interval) {
+        this(interval, Schedulers.parallel(), (name, stats) -> log.info("{}: {}", name, stats));
+    }
+
+    /**
+     * @param interval time between reports
+     * @param sink     receives each source's name and stats
+     */
+    public StatsLog(@NonNull Duration interval, @NonNull Scheduler scheduler, @NonNull BiConsumer<String, Object> sink) {
+        SanityOps.requirePositive(SanityOps.requireNonNull(interval, "interval").toNanos(), "interval");
+        SanityOps.requireNonNull(scheduler, "scheduler");
+        this.sink = SanityOps.requireNonNull(sink, "sink");
+        this.timer = Flux.interval(interval, interval, scheduler)
+                .onBackpressureDrop()
+                .subscribe(tick -> report());
+    }
+
+    /**
+     * @param stats read on every report, e.g. a component's {@code stats()}
+     */
+    public StatsLog register(@NonNull String name, @NonNull Supplier<?> stats) {
+        sources.add(new Source(SanityOps.requireNonNull(name, "name"), SanityOps.requireNonNull(stats, "stats")));
+        return this;
+    }
+
+    /**
+     * Reports every source now, e.g. once more on the way out.
+     */
+    public void report() {
+        for (Source source : sources) {
+            try {
+                sink.accept(source.name, source.stats.get());
+            } catch (RuntimeException e) {
+                log.warn("Failed to read the stats of {}", source.name, e);
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        timer.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return timer.isDisposed();
+    }
+
+    private record Source(String name, Supplier<?> stats) {
+    }
+}
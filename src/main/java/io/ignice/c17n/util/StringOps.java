@@ -3,6 +3,8 @@ package io.ignice.c17n.util;
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
 
+import java.util.Objects;
+
 @UtilityClass
 public class StringOps {
 
@@ -11,4 +13,122 @@ public class StringOps {
         return string.strip().split("\\s+");
     }
 
+    /**
+     * @return a cursor over the whitespace separated tokens of {@code content}, which never copies characters
+     * @see #splitWhitespace(String)
+     */
+    @NonNull
+    public static Tokenizer tokenize(@NonNull CharSequence content) {
+        return new Tokenizer(content);
+    }
+
+    /**
+     * @return a view of the first whitespace separated token of {@code content}, empty if there is none
+     */
+    @NonNull
+    public static CharSequence firstToken(@NonNull CharSequence content) {
+        final int from = skipWhitespace(content, 0);
+        return new View(content, from, tokenEnd(content, from));
+    }
+
+    /**
+     * @return the index of the first non-whitespace character at or after {@code from}, or the length of {@code s}
+     */
+    public static int skipWhitespace(@NonNull CharSequence s, int from) {
+        final int length = s.length();
+        while (from < length && Character.isWhitespace(s.charAt(from))) from++;
+        return from;
+    }
+
+    /**
+     * @return the index of the first whitespace character at or after {@code from}, or the length of {@code s}
+     */
+    public static int tokenEnd(@NonNull CharSequence s, int from) {
+        final int length = s.length();
+        while (from < length && !Character.isWhitespace(s.charAt(from))) from++;
+        return from;
+    }
+
+    /**
+     * Walks the tokens of a {@link CharSequence} in place. Call {@link #next()} before reading each token.
+     */
+    public static final class Tokenizer {
+
+        private final CharSequence content;
+        private int start;
+        private int end;
+
+        private Tokenizer(CharSequence content) {
+            this.content = content;
+        }
+
+        /**
+         * @return whether there is another token
+         */
+        public boolean next() {
+            start = skipWhitespace(content, end);
+            end = tokenEnd(content, start);
+            return start < end;
+        }
+
+        public int start() {
+            return start;
+        }
+
+        public int end() {
+            return end;
+        }
+
+        /**
+         * @return a view of the current token
+         */
+        public CharSequence token() {
+            return new View(content, start, end);
+        }
+
+        /**
+         * @return a view of everything after the current token, leading whitespace included
+         */
+        public CharSequence rest() {
+            return new View(content, end, content.length());
+        }
+    }
+
+    /**
+     * {@code content[start, end)}, backed by {@code content}.
+     */
+    private static final class View implements CharSequence {
+
+        private final CharSequence content;
+        private final int start;
+        private final int end;
+
+        private View(CharSequence content, int start, int end) {
+            this.content = content;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return content.charAt(start + Objects.checkIndex(index, end - start));
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            Objects.checkFromToIndex(from, to, end - start);
+            return new View(content, start + from, start + to);
+        }
+
+        @Override
+        @NonNull
+        public String toString() {
+            return content.subSequence(start, end).toString();
+        }
+    }
 }
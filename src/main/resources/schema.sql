@@ -22,6 +22,41 @@ CREATE TABLE IF NOT EXISTS users (
     version BIGINT NOT NULL
 );
 
+-- append-only wallet changes; users.wallet snapshots every entry with a compaction, the one which folded it in
+CREATE TABLE IF NOT EXISTS wallet_ledger (
+    id BIGINT NOT NULL PRIMARY KEY GENERATED ALWAYS AS IDENTITY,
+    snowflake BIGINT NOT NULL,
+    delta BIGINT NOT NULL CONSTRAINT non_negative_delta CHECK (delta >= 0),
+    created_at TIMESTAMP NOT NULL DEFAULT now(),
+    compaction BIGINT
+);
+
+-- ledgers created when users.ledger_entry was the latest entry folded into each wallet
+ALTER TABLE wallet_ledger ADD COLUMN IF NOT EXISTS compaction BIGINT;
+DO '
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns WHERE table_name = ''users'' AND column_name = ''ledger_entry'') THEN
+        UPDATE wallet_ledger SET compaction = 0 WHERE compaction IS NULL
+            AND id <= (SELECT u.ledger_entry FROM users u WHERE u.snowflake = wallet_ledger.snowflake);
+        ALTER TABLE users DROP COLUMN ledger_entry;
+    END IF;
+END
+';
+
+-- ledgers created when withdrawals were appended; entries already there are left for compaction to fold
+DO '
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ''non_negative_delta'') THEN
+        ALTER TABLE wallet_ledger ADD CONSTRAINT non_negative_delta CHECK (delta >= 0) NOT VALID;
+    END IF;
+END
+';
+
+-- a balance sums the entries of one user not folded yet, and a compaction marks those of every user
+DROP INDEX IF EXISTS idx_wallet_ledger_snowflake_id;
+CREATE INDEX IF NOT EXISTS idx_wallet_ledger_snowflake_compaction ON wallet_ledger (snowflake, compaction);
+CREATE INDEX IF NOT EXISTS idx_wallet_ledger_compaction ON wallet_ledger (compaction);
+
 -- trigger
 DROP TRIGGER IF EXISTS set_timestamp ON users;
 CREATE OR REPLACE TRIGGER set_timestamp
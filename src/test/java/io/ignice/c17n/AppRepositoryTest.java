@@ -39,6 +39,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 @SpringJUnitConfig
@@ -84,6 +85,9 @@ class AppRepositoryTest {
     @Autowired
     private R2dbcEntityTemplate template;
 
+    @Autowired
+    private TransactionalOperator txOperator;
+
     @Configuration
     @EnableR2dbcRepositories
     @EnableTransactionManagement
@@ -218,6 +222,23 @@ class AppRepositoryTest {
                 .verifyComplete();
     }
 
+    @Test
+    void usersCanBePagedByKeyset() {
+        StepVerifier.create(repository.findPage(0L, 2))
+                .expectNext(User.of(Snowflake.of(0L), 1L))
+                .expectNext(User.of(Snowflake.of(1L), 2L))
+                .verifyComplete();
+        StepVerifier.create(repository.findPage(2L, 2))
+                .expectNext(User.of(Snowflake.of(2L), 4L))
+                .expectNext(User.of(Snowflake.of(3L), 8L))
+                .verifyComplete();
+        StepVerifier.create(repository.findPage(4L, 2))
+                .expectNext(User.of(Snowflake.of(4L), 16L))
+                .verifyComplete();
+        StepVerifier.create(repository.findPage(5L, 2))
+                .verifyComplete();
+    }
+
     @Test
     void insertedUsersCanBeUpdated() {
         StepVerifier.create(Flux.range(1, fakeUsers.size())
@@ -232,6 +253,133 @@ class AppRepositoryTest {
                 .verifyComplete();
     }
 
+    @Test
+    void walletDeltasApplyInOneStatement() {
+        StepVerifier.create(repository.addToWallet(4L, 10L))
+                .assertNext(user -> {
+                    Assertions.assertEquals(26L, user.wallet());
+                    Assertions.assertEquals(1L, user.version());
+                })
+                .verifyComplete();
+        StepVerifier.create(repository.addToWallet(4L, -26L).map(User::wallet))
+                .expectNext(0L)
+                .verifyComplete();
+        // overdrawn and unknown users are left alone
+        StepVerifier.create(repository.addToWallet(4L, -1L)).verifyComplete();
+        StepVerifier.create(repository.addToWallet(9L, 1L)).verifyComplete();
+        StepVerifier.create(repository.findUserBySnowflake(4L).map(User::version))
+                .expectNext(2L)
+                .verifyComplete();
+    }
+
+    @Test
+    void walletDepositsSaturate() {
+        StepVerifier.create(repository.addToWallet(3L, Long.MAX_VALUE - 8L).map(User::wallet))
+                .expectNext(Long.MAX_VALUE)
+                .verifyComplete();
+        StepVerifier.create(repository.addToWallet(3L, Long.MAX_VALUE).map(User::wallet))
+                .expectNext(Long.MAX_VALUE)
+                .verifyComplete();
+        StepVerifier.create(repository.addToWallet(3L, Long.MIN_VALUE))
+                .verifyError(IllegalArgumentException.class);
+    }
+
+    @Test
+    void walletDeltasApplyInBatches() {
+        // the unknown snowflake 9 is skipped, the overdraft on 2 floors its wallet and 3 saturates
+        StepVerifier.create(repository.addToWallets(new long[]{0L, 2L, 3L, 9L}, new long[]{5L, -5L, Long.MAX_VALUE, 1L}))
+                .expectNext(3)
+                .verifyComplete();
+        StepVerifier.create(repository.findAll().map(User::wallet))
+                .expectNext(6L, 2L, 0L, Long.MAX_VALUE, 16L)
+                .verifyComplete();
+        StepVerifier.create(repository.findUserBySnowflake(2L).map(User::version))
+                .expectNext(1L)
+                .verifyComplete();
+        StepVerifier.create(repository.addToWallets(new long[]{0L}, new long[]{1L, 2L}))
+                .verifyError(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ledgerEntriesFoldIntoWallets() {
+        StepVerifier.create(repository.appendToLedger(new long[]{0L, 4L, 9L, 0L}, new long[]{5L, 4L, 1L, 1L}))
+                .expectNext(4)
+                .verifyComplete();
+        // the unknown snowflake 9 has no balance
+        StepVerifier.create(Flux.just(0L, 4L, 9L).concatMap(repository::findUserWithLedger).map(User::wallet))
+                .expectNext(7L, 20L)
+                .verifyComplete();
+
+        StepVerifier.create(repository.compactLedger().as(txOperator::transactional))
+                .expectNext(2)
+                .verifyComplete();
+        StepVerifier.create(repository.findUserBySnowflake(0L).map(User::wallet))
+                .expectNext(7L)
+                .verifyComplete();
+        StepVerifier.create(repository.appendToLedger(new long[]{0L}, new long[]{3L})
+                        .then(repository.findUserWithLedger(0L).map(User::wallet)))
+                .expectNext(10L)
+                .verifyComplete();
+
+        // only the entry appended since is left to fold, and then nothing at all
+        StepVerifier.create(repository.compactLedger().as(txOperator::transactional)
+                        .concatWith(repository.compactLedger().as(txOperator::transactional)))
+                .expectNext(1, 0)
+                .verifyComplete();
+        StepVerifier.create(repository.findUserBySnowflake(0L))
+                .assertNext(user -> {
+                    Assertions.assertEquals(10L, user.wallet());
+                    Assertions.assertEquals(2L, user.version());
+                })
+                .verifyComplete();
+        // every entry stays behind, marked with the compaction which folded it
+        StepVerifier.create(template.getDatabaseClient()
+                        .sql("SELECT compaction, COUNT(*) AS entries FROM wallet_ledger GROUP BY compaction ORDER BY compaction")
+                        .map(row -> row.get("compaction", Long.class) + ":" + row.get("entries", Long.class))
+                        .all())
+                .expectNext("1:4", "2:1")
+                .verifyComplete();
+    }
+
+    @Test
+    void ledgerBalancesCanBeListed() {
+        StepVerifier.create(repository.appendToLedger(new long[]{0L, 2L, 2L}, new long[]{5L, 1L, 2L})
+                        .thenMany(repository.findAllWithLedger())
+                        .collectSortedList(Comparator.comparing(user -> user.snowflake().asLong()))
+                        .map(users -> users.stream().map(User::wallet).toList()))
+                .expectNext(List.of(6L, 2L, 7L, 8L, 16L))
+                .verifyComplete();
+    }
+
+    @Test
+    void ledgerBalancesDoNotDependOnCompaction() {
+        StepVerifier.create(repository.appendToLedger(new long[]{0L, 0L}, new long[]{4L, -1L}))
+                .verifyError(IllegalArgumentException.class);
+        StepVerifier.create(repository.appendToLedger(new long[]{0L, 0L}, new long[]{4L, 10L})
+                        .then(repository.findUserWithLedger(0L).map(User::wallet))
+                        .concatWith(repository.compactLedger().as(txOperator::transactional)
+                                .then(repository.findUserWithLedger(0L).map(User::wallet))))
+                .expectNext(15L, 15L)
+                .verifyComplete();
+        // saturated before or after folding alike
+        StepVerifier.create(repository.appendToLedger(new long[]{0L}, new long[]{Long.MAX_VALUE})
+                        .then(repository.findUserWithLedger(0L).map(User::wallet))
+                        .concatWith(repository.compactLedger().as(txOperator::transactional)
+                                .then(repository.appendToLedger(new long[]{0L}, new long[]{1L}))
+                                .then(repository.findUserWithLedger(0L).map(User::wallet))))
+                .expectNext(Long.MAX_VALUE, Long.MAX_VALUE)
+                .verifyComplete();
+    }
+
+    @Test
+    void databaseEnforcesNonNegativeDelta() {
+        StepVerifier.create(template.getDatabaseClient()
+                        .sql("INSERT INTO wallet_ledger (snowflake, delta) VALUES (0, -1)")
+                        .fetch()
+                        .rowsUpdated())
+                .verifyError(DataIntegrityViolationException.class);
+    }
+
     @Test
     void databaseEnforcesSnowflakeUniqueness() {
         // intentional failure
@@ -0,0 +1,74 @@
+package io.ignice.c17n.command;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandPipelineTest {
+
+    private static CommandPipeline pipeline(int concurrency, int queued) {
+        final CommandPipeline.Limits limits = new CommandPipeline.Limits(concurrency, queued);
+        return new CommandPipeline(limits, Schedulers.immediate(), limits, Schedulers.immediate());
+    }
+
+    @Test
+    void queuesBeyondConcurrencyAndShedsBeyondQueue() {
+        final CommandPipeline pipeline = pipeline(1, 1);
+        final List<Sinks.Empty<Void>> handlers = new ArrayList<>();
+        final List<Throwable> errors = new ArrayList<>();
+        final boolean[] done = new boolean[3];
+        for (int i = 0; i < 3; i++) {
+            final Sinks.Empty<Void> handler = Sinks.empty();
+            handlers.add(handler);
+            final int index = i;
+            pipeline.submit(Workload.DATABASE, handler.asMono()).subscribe(null, errors::add, () -> done[index] = true);
+        }
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof RejectedExecutionException);
+        assertEquals(new CommandPipeline.Stats(3, 0, 1, 1, 1), pipeline.stats(Workload.DATABASE));
+
+        handlers.get(0).tryEmitEmpty();
+        assertTrue(done[0]);
+        assertEquals(new CommandPipeline.Stats(3, 1, 1, 1, 0), pipeline.stats(Workload.DATABASE));
+
+        handlers.get(1).tryEmitEmpty();
+        assertTrue(done[1]);
+        assertFalse(done[2]);
+        assertEquals(new CommandPipeline.Stats(3, 2, 1, 0, 0), pipeline.stats(Workload.DATABASE));
+        assertEquals(new CommandPipeline.Stats(0, 0, 0, 0, 0), pipeline.stats(Workload.COMPUTE));
+    }
+
+    @Test
+    void failedHandlersFreeTheirSlot() {
+        final CommandPipeline pipeline = pipeline(1, 0);
+        StepVerifier.create(pipeline.submit(Workload.COMPUTE, Mono.error(new IllegalStateException())))
+                .verifyError(IllegalStateException.class);
+        StepVerifier.create(pipeline.submit(Workload.COMPUTE, Mono.empty())).verifyComplete();
+        assertEquals(0, pipeline.stats(Workload.COMPUTE).running());
+    }
+
+    @Test
+    void runsDatabaseHandlersOffTheCallingThread() {
+        final CommandPipeline pipeline = new CommandPipeline();
+        try {
+            final String caller = Thread.currentThread().getName();
+            final String[] handler = new String[1];
+            pipeline.submit(Workload.DATABASE, Mono.fromRunnable(() -> handler[0] = Thread.currentThread().getName())).block();
+            assertNotEquals(caller, handler[0]);
+            assertTrue(handler[0].startsWith("c17n-db"), handler[0]);
+
+            pipeline.submit(Workload.INLINE, Mono.fromRunnable(() -> handler[0] = Thread.currentThread().getName())).block();
+            assertEquals(caller, handler[0]);
+        } finally {
+            pipeline.dispose();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package io.ignice.c17n.command;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandRegistryTest {
+
+    private final CommandRegistry registry = new CommandRegistry();
+
+    @Test
+    void parsesTypedArguments() {
+        assertEquals(new Invocation(Commands.STEAL, new long[]{80351110224678912L, 25}, null),
+                registry.parse("  steal <@!80351110224678912>\t25 and some chatter"));
+        assertEquals(new Invocation(Commands.BAL, new long[]{42}, null), registry.parse("bal <@42>"));
+        assertEquals(new Invocation(Commands.PING, new long[0], null), registry.parse("ping"));
+    }
+
+    @Test
+    void optionalArgumentsDefaultToZero() {
+        assertEquals(new Invocation(Commands.LIST, new long[]{0}, null), registry.parse("list"));
+        assertEquals(new Invocation(Commands.LIST, new long[]{200}, null), registry.parse("list 200"));
+        assertFalse(registry.parse("list next").isValid());
+        assertEquals("list [page]", Commands.LIST.usage());
+        assertEquals(new Invocation(Commands.TOP, new long[]{0}, null), registry.parse("top"));
+        assertFalse(registry.parse("top 0").isValid());
+    }
+
+    @Test
+    void ignoresNonCommands() {
+        assertNull(registry.parse(""));
+        assertNull(registry.parse("   "));
+        assertNull(registry.parse("hello there"));
+        assertNull(registry.parse("pin"));
+        assertNull(registry.parse("pingpong"));
+    }
+
+    @Test
+    void rejectsMalformedArguments() {
+        assertEquals("missing <amount>, usage: steal <@user> <amount>", registry.parse("steal <@1>").error());
+        assertFalse(registry.parse("steal <@1> 0").isValid());
+        assertFalse(registry.parse("steal <@1> -5").isValid());
+        assertFalse(registry.parse("steal <@1> 9223372036854775808").isValid());
+        assertFalse(registry.parse("steal 1 5").isValid());
+        assertFalse(registry.parse("bal <@>").isValid());
+        assertFalse(registry.parse("bal <#123>").isValid());
+    }
+
+    @Test
+    void snowflakesAreUnsigned() {
+        final long[] out = new long[1];
+        assertTrue(ArgMatcher.SNOWFLAKE.parse("18446744073709551615", 0, 20, out, 0));
+        assertEquals(-1L, out[0]);
+        assertFalse(ArgMatcher.SNOWFLAKE.parse("18446744073709551616", 0, 20, out, 0));
+        assertFalse(ArgMatcher.SNOWFLAKE.parse("123456789012345678901", 0, 21, out, 0));
+        assertTrue(ArgMatcher.SNOWFLAKE.parse("7", 0, 1, out, 0));
+        assertEquals(7, out[0]);
+    }
+
+    @Test
+    void trieMatchesWholeNamesOnly() {
+        final CommandTrie<Integer> trie = CommandTrie.of(Map.of("ab", 1, "abc", 2, "b", 3));
+        assertEquals(1, trie.find("xab", 1, 3));
+        assertEquals(2, trie.find("abc", 0, 3));
+        assertEquals(3, trie.find("b", 0, 1));
+        assertNull(trie.find("a", 0, 1));
+        assertNull(trie.find("abcd", 0, 4));
+        assertThrows(IllegalArgumentException.class, () -> CommandTrie.of(Map.of("", 0)));
+    }
+
+    @Test
+    void triggerRejectsUnaddressedMessages() {
+        final CommandTrigger trigger = new CommandTrigger(CommandTrigger.Mode.PREFIX_OR_MENTION, "!");
+        final CommandRegistry registry = new CommandRegistry(trigger);
+        assertNull(registry.parse("ping"));
+        assertNull(registry.parse("<@5> ping"));
+        assertNull(registry.parse("!pong"));
+        assertEquals(Commands.PING, registry.parse("!ping").command());
+        assertEquals(Commands.PING, registry.parse("! ping").command());
+
+        trigger.self(5);
+        assertEquals(Commands.BAL, registry.parse("<@5> bal <@6>").command());
+        assertEquals(Commands.PING, registry.parse("<@!5>ping").command());
+        assertNull(registry.parse("<@55> ping"));
+        assertNull(registry.parse("<@5"));
+
+        assertEquals(new CommandRegistry.Stats(4, 1, 0, 4), registry.stats());
+    }
+
+    @Test
+    void triggerRequiresPrefix() {
+        assertThrows(IllegalArgumentException.class, () -> new CommandTrigger(CommandTrigger.Mode.PREFIX, " "));
+        assertEquals(CommandTrigger.Mode.PREFIX_OR_MENTION, CommandTrigger.Mode.of(" prefix_or_mention"));
+    }
+}
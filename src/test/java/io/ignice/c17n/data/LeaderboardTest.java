@@ -0,0 +1,56 @@
+package io.ignice.c17n.data;
+
+import discord4j.common.util.Snowflake;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaderboardTest {
+
+    private static User user(long snowflake, long wallet, long version) {
+        return User.of(Snowflake.of(snowflake), wallet).withVersion(version);
+    }
+
+    @Test
+    void ranksByWalletThenSnowflake() {
+        final Leaderboard leaderboard = new Leaderboard();
+        leaderboard.seed(Flux.just(user(1, 50, 0), user(2, 70, 0), user(3, 50, 0), user(-1, 10, 0))).block();
+
+        assertEquals(List.of(new Leaderboard.Rank(2, 70), new Leaderboard.Rank(1, 50)), leaderboard.top(2));
+        assertEquals(4, leaderboard.top(10).size());
+        assertEquals(new Leaderboard.Rank(3, 50), leaderboard.top(3).get(2));
+    }
+
+    @Test
+    void reranksOnNewerVersionsOnly() {
+        final Leaderboard leaderboard = new Leaderboard();
+        leaderboard.update(user(1, 50, 1));
+        leaderboard.update(user(2, 40, 1));
+        leaderboard.update(user(2, 90, 2));
+        leaderboard.update(user(2, 0, 1));
+        assertEquals(List.of(new Leaderboard.Rank(2, 90), new Leaderboard.Rank(1, 50)), leaderboard.top(5));
+        assertEquals(2, leaderboard.size());
+
+        leaderboard.remove(2);
+        assertEquals(List.of(new Leaderboard.Rank(1, 50)), leaderboard.top(5));
+        assertThrows(IllegalArgumentException.class, () -> leaderboard.top(0));
+    }
+
+    @Test
+    void adjustsByPendingDeltas() {
+        final Leaderboard leaderboard = new Leaderboard();
+        leaderboard.update(user(1, 50, 1));
+        leaderboard.update(user(2, 40, 1));
+        leaderboard.adjust(2, 20);
+        leaderboard.adjust(1, -80);
+        leaderboard.adjust(3, 10);
+        assertEquals(List.of(new Leaderboard.Rank(2, 60), new Leaderboard.Rank(1, 0)), leaderboard.top(5));
+
+        // the version is kept, so a committed user of that version replaces the adjusted rank
+        leaderboard.update(user(2, 45, 1));
+        assertEquals(new Leaderboard.Rank(2, 45), leaderboard.top(1).get(0));
+    }
+}
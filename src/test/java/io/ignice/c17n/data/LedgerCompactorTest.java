@@ -0,0 +1,53 @@
+package io.ignice.c17n.data;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerCompactorTest {
+
+    private int unfolded;
+    private int compactions;
+    private boolean failing;
+
+    @Test
+    void foldsWhateverIsLeftEveryInterval() {
+        final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+        final LedgerCompactor compactor = new LedgerCompactor(() -> {
+            compactions++;
+            if (failing) {
+                failing = false;
+                return Mono.error(new IllegalStateException("database down"));
+            }
+            final int users = unfolded;
+            unfolded = 0;
+            return Mono.just(users);
+        }, Duration.ofMinutes(1), scheduler);
+
+        unfolded = 3;
+        scheduler.advanceTimeBy(Duration.ofSeconds(59));
+        assertEquals(0, compactions);
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+        assertEquals(0, unfolded);
+
+        // a failed run leaves its entries to the next one, and the timer keeps going
+        unfolded = 2;
+        failing = true;
+        scheduler.advanceTimeBy(Duration.ofMinutes(1));
+        assertEquals(2, unfolded);
+        scheduler.advanceTimeBy(Duration.ofMinutes(1));
+        assertEquals(0, unfolded);
+        scheduler.advanceTimeBy(Duration.ofMinutes(1));
+        assertEquals(4, compactions);
+        assertEquals(new LedgerCompactor.Stats(3, 5, 1), compactor.stats());
+
+        compactor.dispose();
+        scheduler.advanceTimeBy(Duration.ofMinutes(1));
+        assertEquals(4, compactions);
+        assertTrue(compactor.isDisposed());
+    }
+}
@@ -0,0 +1,47 @@
+package io.ignice.c17n.data;
+
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.Connection;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeteredConnectionPoolTest {
+
+    @Test
+    void reusesConnectionsAndCountsAcquisitions() {
+        final MeteredConnectionPool pool = new MeteredConnectionPool(
+                ConnectionPoolConfiguration.builder(H2ConnectionFactory.inMemory("pool"))
+                        .initialSize(0)
+                        .maxSize(2)
+                        .maxAcquireTime(Duration.ofMillis(200))
+                        .validationQuery("SELECT 1"));
+        try {
+            final Connection first = pool.create().block();
+            final Connection second = pool.create().block();
+            MeteredConnectionPool.Stats stats = pool.stats();
+            assertEquals(2, stats.acquired());
+            assertEquals(2, stats.opened());
+
+            assertThrows(RuntimeException.class, () -> pool.create().block());
+            assertEquals(1, pool.stats().failures());
+
+            Mono.from(first.close()).then(Mono.from(second.close())).block();
+            for (int i = 0; i < 5; i++) {
+                Mono.usingWhen(pool.create(), connection -> Mono.empty(), Connection::close).block();
+            }
+            stats = pool.stats();
+            assertEquals(0, stats.acquired());
+            assertEquals(2, stats.idle());
+            assertEquals(7, stats.acquisitions());
+            assertEquals(2, stats.opened());
+            assertTrue(stats.maxAcquire().compareTo(stats.meanAcquire()) >= 0);
+        } finally {
+            pool.dispose();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package io.ignice.c17n.data;
+
+import discord4j.common.util.Snowflake;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalletCacheTest {
+
+    private final Map<Long, User> table = new HashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private long now;
+
+    private static User user(long snowflake, long wallet, long version) {
+        return User.of(Snowflake.of(snowflake), wallet).withVersion(version);
+    }
+
+    private WalletCache cache(int maxEntries) {
+        return new WalletCache(snowflake -> {
+            loads.incrementAndGet();
+            return Mono.justOrEmpty(table.get(snowflake));
+        }, maxEntries, Duration.ofSeconds(10), () -> now);
+    }
+
+    @Test
+    void readsThroughAndExpires() {
+        final WalletCache cache = cache(16);
+        table.put(1L, user(1, 100, 0));
+        assertEquals(100, cache.wallet(1).block());
+        table.put(1L, user(1, 50, 1));
+        assertEquals(100, cache.wallet(1).block());
+        assertEquals(1, loads.get());
+        assertNull(cache.wallet(2).block());
+
+        now += Duration.ofSeconds(10).toNanos();
+        assertEquals(50, cache.wallet(1).block());
+        assertEquals(new WalletCache.Stats(1, 3, 1, 0, 1), cache.stats());
+        assertEquals(0.25, cache.stats().hitRate());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        final WalletCache cache = cache(2);
+        for (long snowflake = 1; snowflake <= 3; snowflake++) {
+            table.put(snowflake, user(snowflake, snowflake, 0));
+        }
+        cache.wallet(1).block();
+        cache.wallet(2).block();
+        cache.wallet(1).block();
+        cache.wallet(3).block();
+        assertEquals(1, cache.stats().evictions());
+
+        loads.set(0);
+        cache.wallet(1).block();
+        cache.wallet(3).block();
+        assertEquals(0, loads.get());
+        cache.wallet(2).block();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void updatesNeverGoBackInVersion() {
+        final WalletCache cache = cache(16);
+        cache.update(user(1, 10, 4));
+        cache.update(user(1, 99, 3));
+        assertEquals(10, cache.wallet(1).block());
+        cache.update(user(1, 20, 5));
+        assertEquals(20, cache.wallet(1).block());
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void loadsOverlappingWritesAreNotCached() {
+        final Sinks.One<User> slowRead = Sinks.one();
+        final WalletCache cache = new WalletCache(snowflake -> loads.incrementAndGet() == 1
+                ? slowRead.asMono()
+                : Mono.just(table.get(snowflake)), 16, Duration.ofSeconds(10), () -> now);
+        table.put(1L, user(1, 100, 0));
+
+        final Long[] stale = new Long[1];
+        cache.wallet(1).subscribe(wallet -> stale[0] = wallet);
+        table.put(1L, user(1, 60, 1));
+        cache.invalidate(1);
+        slowRead.tryEmitValue(user(1, 100, 0));
+
+        assertEquals(100, stale[0]);
+        assertEquals(60, cache.wallet(1).block());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void loadsReadingRecordedDeltasAreNotAdjustedTwice() {
+        final Sinks.One<User> slowRead = Sinks.one();
+        final WalletLedger ledger = new WalletLedger((snowflakes, deltas) -> Mono.just(0),
+                snowflake -> loads.incrementAndGet() == 1 ? slowRead.asMono() : Mono.justOrEmpty(table.get(snowflake)),
+                new WalletLedger.Settings(false, 1, 100, Duration.ofSeconds(5), WalletLedger.Target.USERS));
+        final WalletCache cache = new WalletCache(ledger::user, 16, Duration.ofSeconds(10), () -> now);
+        table.put(1L, user(1, 100, 0));
+
+        // the load started before the delta was recorded but reads the ledger after, so it already has the delta
+        final Long[] loaded = new Long[1];
+        cache.wallet(1).subscribe(wallet -> loaded[0] = wallet);
+        cache.adjust(1, 5, ledger);
+        slowRead.tryEmitValue(user(1, 100, 0));
+
+        assertEquals(105, loaded[0]);
+        assertEquals(105, cache.wallet(1).block());
+        cache.adjust(1, 5, ledger);
+        assertEquals(110, cache.wallet(1).block());
+        assertEquals(2, loads.get());
+        ledger.dispose();
+    }
+}
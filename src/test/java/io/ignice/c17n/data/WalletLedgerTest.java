@@ -0,0 +1,147 @@
+package io.ignice.c17n.data;
+
+import discord4j.common.util.Snowflake;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalletLedgerTest {
+
+    private final Map<Long, Long> table = new HashMap<>();
+    private final List<Integer> writes = new ArrayList<>();
+    private Sinks.One<Void> gate;
+    private boolean failing;
+
+    private WalletLedger ledger(boolean writeBehind, int batchSize, VirtualTimeScheduler scheduler) {
+        return new WalletLedger((snowflakes, deltas) -> Mono.defer(() -> {
+            if (failing) {
+                failing = false;
+                return Mono.error(new IllegalStateException("database down"));
+            }
+            writes.add(snowflakes.length);
+            int rows = 0;
+            for (int i = 0; i < snowflakes.length; i++) {
+                final Long wallet = table.get(snowflakes[i]);
+                if (wallet != null) {
+                    table.put(snowflakes[i], WalletLedger.merge(wallet, deltas[i]));
+                    rows++;
+                }
+            }
+            return Mono.just(rows);
+        }).delayUntil(rows -> gate == null ? Mono.empty() : gate.asMono()),
+                snowflake -> Mono.justOrEmpty(table.get(snowflake)).map(wallet -> User.of(Snowflake.of(snowflake), wallet)),
+                new WalletLedger.Settings(writeBehind, 4, batchSize, Duration.ofSeconds(5), WalletLedger.Target.USERS), scheduler);
+    }
+
+    @Test
+    void pendingDeltasMergeIntoReads() {
+        final WalletLedger ledger = ledger(false, 100, VirtualTimeScheduler.create());
+        table.put(1L, 10L);
+        ledger.record(1, 5);
+        ledger.record(1, -2);
+        ledger.record(9, 1);
+        assertEquals(3, ledger.pending(1));
+        assertEquals(13, ledger.user(1).block().wallet());
+        assertNull(ledger.user(9).block());
+
+        // sums cancelling out leave nothing pending, and saturate rather than overflow
+        ledger.record(1, -3);
+        assertEquals(0, ledger.pending(1));
+        ledger.record(1, Long.MAX_VALUE);
+        ledger.record(1, Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, ledger.pending(1));
+        assertEquals(Long.MAX_VALUE, ledger.user(1).block().wallet());
+        assertThrows(IllegalArgumentException.class, () -> ledger.record(1, Long.MIN_VALUE));
+        assertEquals(new WalletLedger.Stats(6, 0, 0, 0, 2), ledger.stats());
+    }
+
+    @Test
+    void flushesInBatchesOnceFull() {
+        final WalletLedger ledger = ledger(false, 2, VirtualTimeScheduler.create());
+        for (long snowflake = 1; snowflake <= 5; snowflake++) {
+            table.put(snowflake, 0L);
+        }
+        // hold the flush triggered by the second user, while three more queue up behind it
+        gate = Sinks.one();
+        ledger.record(1, 1);
+        ledger.record(2, 2);
+        ledger.record(3, 3);
+        ledger.record(4, 4);
+        ledger.record(5, 5);
+        assertEquals(List.of(2), writes);
+        final Mono<User> read = ledger.user(2).cache();
+        read.subscribe();
+        gate.tryEmitEmpty();
+        gate = null;
+        assertEquals(2, read.block().wallet());
+
+        // the flush triggered by the fourth user waited for the first, then took all three in two batches
+        assertEquals(List.of(2, 2, 1), writes);
+        assertEquals(Map.of(1L, 1L, 2L, 2L, 3L, 3L, 4L, 4L, 5L, 5L), table);
+        assertEquals(new WalletLedger.Stats(5, 3, 5, 0, 0), ledger.stats());
+        assertEquals(0, ledger.flush().block());
+    }
+
+    @Test
+    void keepsDeltasOfFailedBatches() {
+        final WalletLedger ledger = ledger(false, 100, VirtualTimeScheduler.create());
+        table.put(1L, 10L);
+        ledger.record(1, -15);
+        failing = true;
+        assertThrows(IllegalStateException.class, () -> ledger.flush().block());
+        assertEquals(-15, ledger.pending(1));
+        assertEquals(0, ledger.user(1).block().wallet());
+
+        assertEquals(1, ledger.flush().block());
+        assertEquals(0, table.get(1L));
+        assertEquals(new WalletLedger.Stats(1, 1, 1, 1, 0), ledger.stats());
+    }
+
+    @Test
+    void flushesPeriodicallyWhenWritingBehind() {
+        final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+        final WalletLedger ledger = ledger(true, 100, scheduler);
+        table.put(1L, 10L);
+        ledger.record(1, 5);
+        scheduler.advanceTimeBy(Duration.ofSeconds(4));
+        assertEquals(10, table.get(1L));
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+        assertEquals(15, table.get(1L));
+        assertEquals(0, ledger.pending(1));
+
+        ledger.dispose();
+        ledger.record(1, 5);
+        scheduler.advanceTimeBy(Duration.ofSeconds(10));
+        assertEquals(15, table.get(1L));
+        assertTrue(ledger.isDisposed());
+    }
+
+    @Test
+    void ledgerTargetRequiresWriteBehind() {
+        assertEquals(WalletLedger.Target.LEDGER, WalletLedger.Target.of(" Ledger "));
+        assertThrows(IllegalArgumentException.class,
+                () -> new WalletLedger.Settings(false, 4, 100, Duration.ofSeconds(5), WalletLedger.Target.LEDGER));
+        assertTrue(new WalletLedger.Settings(true, 4, 100, Duration.ofSeconds(5), WalletLedger.Target.LEDGER).writeBehind());
+    }
+
+    @Test
+    void ledgerTargetRejectsWithdrawals() {
+        final WalletLedger ledger = new WalletLedger((snowflakes, deltas) -> Mono.just(snowflakes.length),
+                snowflake -> Mono.empty(),
+                new WalletLedger.Settings(true, 4, 100, Duration.ofSeconds(5), WalletLedger.Target.LEDGER),
+                VirtualTimeScheduler.create());
+        ledger.record(1, 5);
+        assertThrows(IllegalArgumentException.class, () -> ledger.record(1, -1));
+        assertEquals(5, ledger.pending(1));
+        ledger.dispose();
+    }
+}
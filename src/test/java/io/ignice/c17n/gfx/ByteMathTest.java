@@ -1,89 +1,99 @@
-//package io.ignice.c17n.gfx;
-//
-//import org.junit.jupiter.api.AfterEach;
-//import org.junit.jupiter.api.BeforeEach;
-//import org.junit.jupiter.api.Test;
-//
-//import static org.junit.jupiter.api.Assertions.*;
-//
-//class ByteMathTest {
-//
-//    @BeforeEach
-//    void setUp() {
-//    }
-//
-//    @AfterEach
-//    void tearDown() {
-//    }
-//
-//    @Test
-//    void
-//
-//    @Test
-//    void unpack4u8() {
-//    }
-//
-//    @Test
-//    void pack4u8() {
-//    }
-//
-//    @Test
-//    void msb_0() {
-//    }
-//
-//    @Test
-//    void msb_1() {
-//    }
-//
-//    @Test
-//    void msb_2() {
-//    }
-//
-//    @Test
-//    void msb_3() {
-//    }
-//
-//    @Test
-//    void lsb_0() {
-//    }
-//
-//    @Test
-//    void lsb_1() {
-//    }
-//
-//    @Test
-//    void lsb_2() {
-//    }
-//
-//    @Test
-//    void lsb_3() {
-//    }
-//
-//    @Test
-//    void array() {
-//    }
-//
-//    @Test
-//    void requireLowerUpperBound() {
-//    }
-//
-//    @Test
-//    void u8() {
-//    }
-//
-//    @Test
-//    void testU8() {
-//    }
-//
-//    @Test
-//    void u8cast() {
-//    }
-//
-//    @Test
-//    void concat() {
-//    }
-//
-//    @Test
-//    void testConcat() {
-//    }
-//}
\ No newline at end of file
+package io.ignice.c17n.gfx;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static io.ignice.c17n.gfx.ByteMath.array;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteMathTest {
+
+    @Test
+    void u8RoundTrips() {
+        IntStream.rangeClosed(0x00, 0xFF).forEach(b -> assertEquals(b, ByteMath.u8(ByteMath.u8(b))));
+        assertThrows(IllegalArgumentException.class, () -> ByteMath.u8(0x100));
+        assertThrows(IllegalArgumentException.class, () -> ByteMath.u8(-1));
+    }
+
+    @Test
+    void pack4u8() {
+        assertEquals(0x80FF017F, ByteMath.pack4u8((byte) 0x80, (byte) 0xFF, (byte) 0x01, (byte) 0x7F));
+        assertArrayEquals(array(0x80, 0xFF, 0x01, 0x7F), ByteMath.unpack4u8(0x80FF017F));
+        assertEquals((byte) 0x80, ByteMath.msb_0(0x80FF017F));
+        assertEquals((byte) 0x7F, ByteMath.lsb_0(0x80FF017F));
+    }
+
+    @Test
+    void bulkPack4u8RoundTrips() {
+        final byte[] bytes = random(4 * 33 + 1);
+        final int[] packed = new int[33];
+        ByteMath.pack4u8(bytes, 1, packed, 0, packed.length);
+        for (int i = 0; i < packed.length; i++) {
+            final int j = 1 + 4 * i;
+            assertEquals(ByteMath.pack4u8(bytes[j], bytes[j + 1], bytes[j + 2], bytes[j + 3]), packed[i]);
+        }
+        final byte[] unpacked = new byte[bytes.length];
+        unpacked[0] = bytes[0];
+        ByteMath.unpack4u8(packed, 0, unpacked, 1, packed.length);
+        assertArrayEquals(bytes, unpacked);
+    }
+
+    @Test
+    void u16LittleEndian() {
+        final byte[] bytes = new byte[5];
+        ByteMath.putU16LE(bytes, 1, 0xABCD);
+        assertArrayEquals(array(0x00, 0xCD, 0xAB, 0x00, 0x00), bytes);
+        assertEquals(0xABCD, ByteMath.getU16LE(bytes, 1));
+
+        final ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.BIG_ENDIAN);
+        ByteMath.putU16LE(buffer, 0x0A00);
+        assertEquals(2, buffer.position());
+        assertEquals(0x0A00, ByteMath.getU16LE(buffer, 0));
+        assertArrayEquals(array(0x00, 0x0A, 0x00, 0x00), buffer.array());
+    }
+
+    @Test
+    void bulkU16AndU32RoundTrip() {
+        final byte[] bytes = random(64);
+        final int[] u16 = new int[32];
+        ByteMath.decodeU16LE(bytes, 0, u16, 0, u16.length);
+        assertEquals(Byte.toUnsignedInt(bytes[2]) | Byte.toUnsignedInt(bytes[3]) << 8, u16[1]);
+        final byte[] u16Bytes = new byte[bytes.length];
+        ByteMath.encodeU16LE(u16, 0, u16Bytes, 0, u16.length);
+        assertArrayEquals(bytes, u16Bytes);
+
+        final int[] u32 = new int[16];
+        ByteMath.decodeU32LE(bytes, 0, u32, 0, u32.length);
+        assertEquals(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getInt(8), u32[2]);
+        final byte[] u32Bytes = new byte[bytes.length];
+        ByteMath.encodeU32LE(u32, 0, u32Bytes, 0, u32.length);
+        assertArrayEquals(bytes, u32Bytes);
+    }
+
+    @Test
+    void rgbRoundTrips() {
+        final byte[] rgb = random(3 * 17);
+        final int[] argb = new int[17];
+        ByteMath.unpackRgb(rgb, 0, argb, 0, argb.length);
+        assertEquals(0xFF000000 | Byte.toUnsignedInt(rgb[48]) << 16 | Byte.toUnsignedInt(rgb[49]) << 8 | Byte.toUnsignedInt(rgb[50]), argb[16]);
+        final byte[] packed = new byte[rgb.length];
+        ByteMath.packRgb(argb, 0, packed, 0, argb.length);
+        assertArrayEquals(rgb, packed);
+    }
+
+    @Test
+    void bulkCodecsCheckBounds() {
+        assertThrows(IndexOutOfBoundsException.class, () -> ByteMath.decodeU16LE(new byte[3], 0, new int[2], 0, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> ByteMath.packRgb(new int[2], 0, new byte[5], 0, 2));
+    }
+
+    private static byte[] random(int length) {
+        final byte[] bytes = new byte[length];
+        new Random(8).nextBytes(bytes);
+        return bytes;
+    }
+}
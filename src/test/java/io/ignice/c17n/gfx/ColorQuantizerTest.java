@@ -0,0 +1,87 @@
+package io.ignice.c17n.gfx;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColorQuantizerTest {
+
+    @Test
+    void fewColorsAreKeptExactly() {
+        final int[] argb = { 0xFFFFFFFF, 0xFFFF0000, 0xFF0000FF, 0xFF000000, 0xFFFF0000, 0xFFFFFFFF };
+        final QuantizedRaster raster = ColorQuantizer.quantize(argb);
+
+        assertEquals(4, raster.table().colors());
+        assertEquals(1, raster.packedField().sizeOfGlobalColorTable());
+        for (int i = 0; i < argb.length; i++) {
+            assertEquals(argb[i] & 0xFFFFFF, color(raster, i));
+        }
+    }
+
+    @Test
+    void singleColorStillHasTwoEntries() {
+        final QuantizedRaster raster = ColorQuantizer.quantize(new int[] { 0xFF123456, 0xFF123456 });
+        assertEquals(2, raster.table().colors());
+        assertEquals(0x123456, color(raster, 1));
+    }
+
+    @Test
+    void gradientIsReducedToPalette() {
+        final int[] argb = gradient(512, 512);
+        final QuantizedRaster raster = ColorQuantizer.quantize(argb, 64);
+
+        assertTrue(raster.table().colors() <= 64);
+        long error = 0L;
+        for (int i = 0; i < argb.length; i++) {
+            final int actual = color(raster, i);
+            for (int shift = 0; shift <= 16; shift += 8) {
+                error += Math.abs(((argb[i] >>> shift) & 0xFF) - ((actual >>> shift) & 0xFF));
+            }
+        }
+        assertTrue(error / (3.0 * argb.length) < 16.0, "mean channel error too large");
+    }
+
+    @Test
+    void parallelHistogramMatchesSerialHistogram() {
+        final int[] argb = gradient(640, 480);
+        final QuantizedRaster serial = ColorQuantizer.quantize(argb, 256, false);
+        final QuantizedRaster parallel = ColorQuantizer.quantize(argb, 256, true);
+        assertArrayEquals(serial.table().rgb(), parallel.table().rgb());
+        assertArrayEquals(serial.indices(), parallel.indices());
+    }
+
+    @Test
+    void quantizedRasterEncodesAsGif() throws IOException {
+        final int[] argb = gradient(40, 30);
+        final QuantizedRaster raster = ColorQuantizer.quantize(argb);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new GifEncoder().encode(raster.gif(40, 30), Channels.newChannel(out));
+        final BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(0xFF000000 | color(raster, 29 * 40 + 7), image.getRGB(7, 29));
+    }
+
+    private static int[] gradient(int width, int height) {
+        final int[] argb = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                argb[y * width + x] = 0xFF000000 | ((x * 255 / width) << 16) | ((y * 255 / height) << 8) | ((x ^ y) & 0xFF);
+            }
+        }
+        return argb;
+    }
+
+    private static int color(QuantizedRaster raster, int pixel) {
+        final byte[] rgb = raster.table().rgb();
+        final int index = 3 * Byte.toUnsignedInt(raster.indices()[pixel]);
+        return (Byte.toUnsignedInt(rgb[index]) << 16) | (Byte.toUnsignedInt(rgb[index + 1]) << 8) | Byte.toUnsignedInt(rgb[index + 2]);
+    }
+}
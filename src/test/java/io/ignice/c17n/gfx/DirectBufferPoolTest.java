@@ -0,0 +1,56 @@
+package io.ignice.c17n.gfx;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectBufferPoolTest {
+
+    @Test
+    void roundsUpToSizeClass() {
+        final DirectBufferPool pool = new DirectBufferPool(DirectBufferPool.DEFAULT_MAX_RETAINED_BYTES);
+        assertEquals(DirectBufferPool.MIN_CLASS_SIZE, pool.acquire(1).capacity());
+        assertEquals(DirectBufferPool.MIN_CLASS_SIZE << 1, pool.acquire(DirectBufferPool.MIN_CLASS_SIZE + 1).capacity());
+        assertTrue(pool.acquire(100).isDirect());
+    }
+
+    @Test
+    void reusesReleasedBuffers() {
+        final DirectBufferPool pool = new DirectBufferPool(DirectBufferPool.DEFAULT_MAX_RETAINED_BYTES);
+        final ByteBuffer buffer = pool.acquire(5000);
+        buffer.put((byte) 1);
+        pool.release(buffer);
+        assertEquals(buffer.capacity(), pool.retainedBytes());
+
+        final ByteBuffer reused = pool.acquire(6000);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(0, pool.retainedBytes());
+    }
+
+    @Test
+    void boundsRetainedBytes() {
+        final DirectBufferPool pool = new DirectBufferPool(DirectBufferPool.MIN_CLASS_SIZE);
+        final ByteBuffer first = pool.acquire(1);
+        final ByteBuffer second = pool.acquire(1);
+        pool.release(first);
+        pool.release(second);
+        pool.release(ByteBuffer.allocate(DirectBufferPool.MIN_CLASS_SIZE));
+        assertEquals(DirectBufferPool.MIN_CLASS_SIZE, pool.retainedBytes());
+    }
+
+    @Test
+    void closingVectorReleasesOnce() {
+        final DirectBufferPool pool = new DirectBufferPool(DirectBufferPool.DEFAULT_MAX_RETAINED_BYTES);
+        final ByteBuffer buffer = pool.acquire(1);
+        buffer.put(new byte[]{1, 2, 3});
+        final DirectByteVector vector = new DirectByteVector(pool, buffer, buffer.position());
+        assertEquals(3, vector.length());
+        assertEquals(2, vector.get(1));
+        vector.close();
+        vector.close();
+        assertEquals(buffer.capacity(), pool.retainedBytes());
+    }
+}
@@ -0,0 +1,104 @@
+package io.ignice.c17n.gfx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static io.ignice.c17n.gfx.ByteMath.array;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GifDecoderTest {
+
+    // sample_1.gif from http://giflib.sourceforge.net/whatsinagif/bits_and_bytes.html
+    private static final byte[] SAMPLE = array(
+            0x47, 0x49, 0x46, 0x38, 0x39, 0x61,
+            0x0A, 0x00, 0x0A, 0x00, 0x91, 0x00, 0x00,
+            0xFF, 0xFF, 0xFF, 0xFF, 0x00, 0x00, 0x00, 0x00, 0xFF, 0x00, 0x00, 0x00,
+            0x21, 0xF9, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x2C, 0x00, 0x00, 0x00, 0x00, 0x0A, 0x00, 0x0A, 0x00, 0x00,
+            0x02, 0x16, 0x8C, 0x2D, 0x99, 0x87, 0x2A, 0x1C, 0xDC, 0x33, 0xA0, 0x02, 0x75, 0xEC, 0x95, 0xFA,
+            0xA8, 0xDE, 0x60, 0x8C, 0x04, 0x91, 0x4C, 0x01, 0x00,
+            0x3B);
+
+    @Test
+    void readsSampleMetadata() {
+        final MappedGif gif = GifDecoder.of(ByteBuffer.wrap(SAMPLE));
+        assertEquals(Header.GIF89A, gif.header());
+        assertEquals(10, gif.width());
+        assertEquals(10, gif.height());
+        assertEquals(new PackedField(true, 1, false, 1), gif.packedField());
+        assertEquals(12, gif.globalColorTable().remaining());
+        assertEquals(1, gif.frameCount());
+        assertTrue(gif.loops().isEmpty());
+
+        final MappedGif.Frame frame = gif.frames().get(0);
+        assertEquals(new ImageDescriptor(10, 10), frame.descriptor());
+        assertEquals(new GraphicControlExtension(GraphicControlExtension.DisposalMethod.UNSPECIFIED, 0,
+                GraphicControlExtension.NO_TRANSPARENCY), frame.graphicControl());
+        assertNull(frame.localColorTable());
+        assertEquals(25, frame.imageData().remaining());
+    }
+
+    @Test
+    void decompressesSamplePixels() {
+        final byte[] pixels = GifDecoder.of(ByteBuffer.wrap(SAMPLE)).frames().get(0).pixels();
+        assertArrayEquals(array(1, 1, 1, 1, 1, 2, 2, 2, 2, 2), Arrays.copyOf(pixels, 10));
+        assertArrayEquals(array(2, 2, 2, 0, 0, 0, 0, 1, 1, 1), Arrays.copyOfRange(pixels, 50, 60));
+    }
+
+    @Test
+    void mappedFileRoundTrips(@TempDir Path directory) throws IOException {
+        final Random random = new Random(5);
+        final byte[] rgb = new byte[3 * GlobalColorTable.MAX_COLORS];
+        random.nextBytes(rgb);
+        final GlobalColorTable table = new GlobalColorTable(rgb);
+        final List<byte[]> frames = IntStream.range(0, 6)
+                .mapToObj(frame -> {
+                    final byte[] indices = new byte[120 * 90];
+                    for (int i = 0; i < indices.length; i++) {
+                        indices[i] = (byte) (frame % 2 == 0 ? random.nextInt(256) : i / 7);
+                    }
+                    return indices;
+                })
+                .collect(Collectors.toList());
+        final GIF expected = new GIF(Header.GIF89A,
+                new LogicalScreenDescriptor(CanvasWidth.of(120), CanvasHeight.of(90), PackedField.of(table), (byte) 0, (byte) 0),
+                table,
+                frames.stream()
+                        .map(indices -> new ImageBlock(new GraphicControlExtension(7), new ImageDescriptor(120, 90),
+                                IndexedImageData.of(table, indices)))
+                        .collect(Collectors.toList()),
+                new LoopExtension(3));
+
+        final Path path = directory.resolve("animation.gif");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            new GifEncoder().encode(expected, channel);
+        }
+
+        final MappedGif actual = GifDecoder.open(path);
+        assertEquals(120, actual.width());
+        assertEquals(90, actual.height());
+        assertEquals(ByteBuffer.wrap(rgb), actual.globalColorTable());
+        assertEquals(3, actual.loops().orElseThrow());
+        assertEquals(frames.size(), actual.frameCount());
+        for (int i = 0; i < frames.size(); i++) {
+            assertEquals(7, actual.frames().get(i).graphicControl().delay());
+            assertArrayEquals(frames.get(i), actual.frames().get(i).pixels(), "frame " + i);
+        }
+    }
+
+    @Test
+    void rejectsNonGif() {
+        assertThrows(IllegalArgumentException.class, () -> GifDecoder.of(ByteBuffer.wrap(new byte[32])));
+    }
+}
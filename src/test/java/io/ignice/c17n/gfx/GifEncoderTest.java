@@ -0,0 +1,176 @@
+package io.ignice.c17n.gfx;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Schedulers;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static io.ignice.c17n.gfx.ByteMath.array;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GifEncoderTest {
+
+    // sample_1.gif from http://giflib.sourceforge.net/whatsinagif/bits_and_bytes.html without its graphic control extension
+    private static final byte[] SAMPLE = array(
+            0x47, 0x49, 0x46, 0x38, 0x39, 0x61,
+            0x0A, 0x00, 0x0A, 0x00, 0x91, 0x00, 0x00,
+            0xFF, 0xFF, 0xFF, 0xFF, 0x00, 0x00, 0x00, 0x00, 0xFF, 0x00, 0x00, 0x00,
+            0x2C, 0x00, 0x00, 0x00, 0x00, 0x0A, 0x00, 0x0A, 0x00, 0x00,
+            0x02, 0x16, 0x8C, 0x2D, 0x99, 0x87, 0x2A, 0x1C, 0xDC, 0x33, 0xA0, 0x02, 0x75, 0xEC, 0x95, 0xFA,
+            0xA8, 0xDE, 0x60, 0x8C, 0x04, 0x91, 0x4C, 0x01, 0x00,
+            0x3B);
+
+    private static final byte[] SAMPLE_CODES = array(
+            0x8C, 0x2D, 0x99, 0x87, 0x2A, 0x1C, 0xDC, 0x33, 0xA0, 0x02, 0x75, 0xEC, 0x95, 0xFA,
+            0xA8, 0xDE, 0x60, 0x8C, 0x04, 0x91, 0x4C, 0x01);
+
+    private static GIF sample() {
+        return new GIF(Header.GIF89A,
+                new LogicalScreenDescriptor(CanvasWidth.of(10), CanvasHeight.of(10),
+                        new PackedField(true, 1, false, 1), (byte) 0, (byte) 0),
+                new GlobalColorTable(array(0xFF, 0xFF, 0xFF, 0xFF, 0x00, 0x00, 0x00, 0x00, 0xFF, 0x00, 0x00, 0x00)),
+                List.of(new ImageBlock(new ImageDescriptor(10, 10),
+                        new CompressedImageData(2, ByteVector.wrap(SAMPLE_CODES)))));
+    }
+
+    @Test
+    void encodesIntoChannel() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final long written = new GifEncoder(ByteSink.MAX_CLAIM).encode(sample(), Channels.newChannel(out));
+        assertEquals(SAMPLE.length, written);
+        assertArrayEquals(SAMPLE, out.toByteArray());
+    }
+
+    @Test
+    void encodesIntoBuffer() {
+        final ByteBuffer buffer = ByteBuffer.allocate(SAMPLE.length);
+        new GifEncoder().encode(sample(), buffer);
+        assertArrayEquals(SAMPLE, buffer.array());
+    }
+
+    @Test
+    void encodedFileIsReadable() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new GifEncoder().encode(sample(), Channels.newChannel(out));
+        final BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(10, image.getWidth());
+        assertEquals(10, image.getHeight());
+        assertEquals(0xFFFF0000, image.getRGB(0, 0));
+        assertEquals(0xFF0000FF, image.getRGB(9, 0));
+    }
+
+    @Test
+    void parallelEncodingMatchesSerialEncoding() throws IOException {
+        final GIF animation = animation(24, 64, 48);
+
+        final ByteArrayOutputStream serial = new ByteArrayOutputStream();
+        new GifEncoder().encode(animation, Channels.newChannel(serial));
+
+        final ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        final Long written = new GifEncoder().encode(animation, Channels.newChannel(parallel), Schedulers.parallel(), 4).block();
+
+        assertEquals(serial.size(), written);
+        assertArrayEquals(serial.toByteArray(), parallel.toByteArray());
+
+        final ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        reader.setInput(ImageIO.createImageInputStream(new ByteArrayInputStream(parallel.toByteArray())));
+        assertEquals(24, reader.getNumImages(true));
+        assertEquals(0xFF000000 | (5 << 16), reader.read(5).getRGB(0, 0));
+    }
+
+    @Test
+    void ropeEncodingMatchesSerialEncoding() throws IOException {
+        final GIF animation = animation(12, 40, 40);
+
+        final ByteArrayOutputStream serial = new ByteArrayOutputStream();
+        new GifEncoder().encode(animation, Channels.newChannel(serial));
+
+        final ByteVector rope = GifEncoder.encode(animation, Schedulers.parallel(), 4).block();
+        assertNotNull(rope);
+        final ByteBuffer buffer = ByteBuffer.allocate(rope.length());
+        rope.copyTo(0, buffer, rope.length());
+        assertArrayEquals(serial.toByteArray(), buffer.array());
+    }
+
+    @Test
+    void compressedFramesEncodeIdentically() throws IOException {
+        final GIF animation = animation(8, 32, 32);
+        final GIF compressed = GifEncoder.compress(animation, Schedulers.parallel(), 2).block();
+        assertNotNull(compressed);
+        assertTrue(compressed.imageBlocks().stream().allMatch(block -> block.data() instanceof EncodedImageData));
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new GifEncoder().encode(animation, Channels.newChannel(expected));
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        new GifEncoder().encode(compressed, Channels.newChannel(actual));
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    void directEncodingMatchesSerialEncoding() throws IOException {
+        final GIF animation = animation(6, 64, 48);
+
+        final ByteArrayOutputStream serial = new ByteArrayOutputStream();
+        new GifEncoder().encode(animation, Channels.newChannel(serial));
+
+        final DirectBufferPool pool = new DirectBufferPool(DirectBufferPool.DEFAULT_MAX_RETAINED_BYTES);
+        try (DirectByteVector direct = new GifEncoder().encode(animation, pool)) {
+            assertArrayEquals(serial.toByteArray(), direct.asInputStream().readAllBytes());
+            assertEquals(ByteBuffer.wrap(serial.toByteArray()), direct.asByteBuffer());
+        }
+        assertTrue(pool.retainedBytes() > 0);
+    }
+
+    private static GIF animation(int frames, int width, int height) {
+        final byte[] rgb = new byte[3 * GlobalColorTable.MAX_COLORS];
+        for (int i = 0; i < GlobalColorTable.MAX_COLORS; i++) {
+            rgb[3 * i] = (byte) i;
+        }
+        final GlobalColorTable table = new GlobalColorTable(rgb);
+        final List<ImageBlock> blocks = IntStream.range(0, frames)
+                .mapToObj(frame -> {
+                    final byte[] indices = new byte[width * height];
+                    for (int i = 0; i < indices.length; i++) {
+                        indices[i] = (byte) (i == 0 ? frame : (i % width + frame) * (i / width));
+                    }
+                    return new ImageBlock(new GraphicControlExtension(10), new ImageDescriptor(width, height),
+                            IndexedImageData.of(table, indices));
+                })
+                .collect(Collectors.toList());
+        return new GIF(Header.GIF89A,
+                new LogicalScreenDescriptor(CanvasWidth.of(width), CanvasHeight.of(height),
+                        new PackedField(true, 7, false, table.sizeBits()), (byte) 0, (byte) 0),
+                table, blocks, LoopExtension.FOREVER);
+    }
+
+    @Test
+    void rejectsBufferThatIsTooSmall() {
+        assertThrows(BufferOverflowException.class,
+                () -> new GifEncoder().encode(sample(), ByteBuffer.allocate(SAMPLE.length - 1)));
+    }
+
+    @Test
+    void encodesIndexedFramesIntoExactlySizedBuffer() throws IOException {
+        final GIF animation = animation(2, 64, 48);
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new GifEncoder().encode(animation, Channels.newChannel(expected));
+
+        final ByteBuffer buffer = ByteBuffer.allocate(expected.size());
+        new GifEncoder().encode(animation, buffer);
+        assertFalse(buffer.hasRemaining());
+        assertArrayEquals(expected.toByteArray(), buffer.array());
+        assertThrows(BufferOverflowException.class,
+                () -> new GifEncoder().encode(animation, ByteBuffer.allocate(expected.size() - 1)));
+    }
+}
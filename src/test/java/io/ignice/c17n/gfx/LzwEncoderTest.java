@@ -0,0 +1,99 @@
+package io.ignice.c17n.gfx;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static io.ignice.c17n.gfx.ByteMath.array;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LzwEncoderTest {
+
+    // sample_1.gif from http://giflib.sourceforge.net/whatsinagif/bits_and_bytes.html
+    private static final byte[] SAMPLE_INDICES = array(
+            1, 1, 1, 1, 1, 2, 2, 2, 2, 2,
+            1, 1, 1, 1, 1, 2, 2, 2, 2, 2,
+            1, 1, 1, 1, 1, 2, 2, 2, 2, 2,
+            1, 1, 1, 0, 0, 0, 0, 2, 2, 2,
+            1, 1, 1, 0, 0, 0, 0, 2, 2, 2,
+            2, 2, 2, 0, 0, 0, 0, 1, 1, 1,
+            2, 2, 2, 0, 0, 0, 0, 1, 1, 1,
+            2, 2, 2, 2, 2, 1, 1, 1, 1, 1,
+            2, 2, 2, 2, 2, 1, 1, 1, 1, 1,
+            2, 2, 2, 2, 2, 1, 1, 1, 1, 1);
+
+    private static final byte[] SAMPLE_IMAGE_DATA = array(
+            0x02, 0x16, 0x8C, 0x2D, 0x99, 0x87, 0x2A, 0x1C, 0xDC, 0x33, 0xA0, 0x02, 0x75, 0xEC, 0x95, 0xFA,
+            0xA8, 0xDE, 0x60, 0x8C, 0x04, 0x91, 0x4C, 0x01, 0x00);
+
+    @Test
+    void compressesSampleLikeReferenceEncoder() {
+        final ByteBuffer buffer = ByteBuffer.allocate(SAMPLE_IMAGE_DATA.length);
+        new LzwEncoder().encode(2, SAMPLE_INDICES, length -> buffer);
+        assertArrayEquals(SAMPLE_IMAGE_DATA, buffer.array());
+    }
+
+    @Test
+    void rejectsIndicesOutsideOfCodeSize() {
+        final ByteBuffer buffer = ByteBuffer.allocate(1 << 10);
+        assertThrows(IllegalArgumentException.class, () -> new LzwEncoder().encode(2, array(0, 4), length -> buffer));
+    }
+
+    @Test
+    void noisyImageSurvivesRoundTrip() throws IOException {
+        final byte[] indices = new byte[320 * 240];
+        new Random(17).nextBytes(indices);
+        assertRoundTrip(320, 240, indices);
+    }
+
+    @Test
+    void flatImageSurvivesRoundTrip() throws IOException {
+        final byte[] indices = new byte[500 * 500];
+        Arrays.fill(indices, (byte) 200);
+        assertRoundTrip(500, 500, indices);
+    }
+
+    @Test
+    void stripedImageSurvivesRoundTrip() throws IOException {
+        final byte[] indices = new byte[256 * 64];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = (byte) ((i / 3) ^ (i >>> 8));
+        }
+        assertRoundTrip(256, 64, indices);
+    }
+
+    private static void assertRoundTrip(int width, int height, byte[] indices) throws IOException {
+        final byte[] rgb = new byte[3 * GlobalColorTable.MAX_COLORS];
+        for (int i = 0; i < GlobalColorTable.MAX_COLORS; i++) {
+            rgb[3 * i] = (byte) i;
+        }
+        final GlobalColorTable table = new GlobalColorTable(rgb);
+        final GIF gif = new GIF(Header.GIF89A,
+                new LogicalScreenDescriptor(CanvasWidth.of(width), CanvasHeight.of(height),
+                        new PackedField(true, 7, false, table.sizeBits()), (byte) 0, (byte) 0),
+                table,
+                List.of(new ImageBlock(new ImageDescriptor(width, height), IndexedImageData.of(table, indices))));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new GifEncoder().encode(gif, Channels.newChannel(out));
+        final BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(width, image.getWidth());
+        assertEquals(height, image.getHeight());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final int expected = Byte.toUnsignedInt(indices[y * width + x]);
+                assertEquals(expected, (image.getRGB(x, y) >>> 16) & 0xFF, "pixel " + x + "," + y);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.ignice.c17n.gfx;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderCacheTest {
+
+    private static RenderCache.Key key(int i) {
+        return RenderCache.Key.hasher("test").putInt(i).key();
+    }
+
+    private static Mono<ByteVector> render(int length) {
+        return Mono.fromSupplier(() -> ByteVector.wrap(new byte[length]));
+    }
+
+    @Test
+    void keysAreContentAddressed() {
+        assertEquals(key(1), key(1));
+        assertNotEquals(key(1), key(2));
+        assertNotEquals(RenderCache.Key.hasher("a").putString("bc").key(), RenderCache.Key.hasher("ab").putString("c").key());
+    }
+
+    @Test
+    void cachesRenders() {
+        final RenderCache cache = new RenderCache(1024);
+        final AtomicInteger renders = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(10, cache.get(key(1), () -> render(10).doOnNext(v -> renders.incrementAndGet())).block().length());
+        }
+        assertEquals(1, renders.get());
+        final RenderCache.Stats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(10, stats.bytes());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedByBytes() {
+        final RenderCache cache = new RenderCache(100);
+        cache.get(key(1), () -> render(40)).block();
+        cache.get(key(2), () -> render(40)).block();
+        cache.get(key(1), () -> render(40)).block(); // 2 is now the eldest
+        cache.get(key(3), () -> render(40)).block();
+        cache.get(key(4), () -> render(200)).block(); // never fits
+
+        final RenderCache.Stats stats = cache.stats();
+        assertEquals(2, stats.entries());
+        assertEquals(80, stats.bytes());
+        assertEquals(2, stats.evictions());
+
+        cache.get(key(1), () -> render(40)).block();
+        assertEquals(2, cache.stats().hits());
+        cache.get(key(2), () -> render(40)).block();
+        assertEquals(5, cache.stats().misses());
+    }
+
+    @Test
+    void coalescesConcurrentMisses() {
+        final RenderCache cache = new RenderCache(1024);
+        final Sinks.One<ByteVector> sink = Sinks.one();
+        final AtomicInteger renders = new AtomicInteger();
+        final Mono<ByteVector> first = cache.get(key(1), () -> sink.asMono().doOnSubscribe(s -> renders.incrementAndGet()));
+        final Mono<ByteVector> second = cache.get(key(1), () -> render(1));
+
+        final ByteVector[] results = new ByteVector[2];
+        first.subscribe(v -> results[0] = v);
+        second.subscribe(v -> results[1] = v);
+        sink.tryEmitValue(ByteVector.wrap(new byte[7]));
+
+        assertEquals(1, renders.get());
+        assertSame(results[0], results[1]);
+        assertEquals(1, cache.stats().coalesced());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    void doesNotCacheErrors() {
+        final RenderCache cache = new RenderCache(1024);
+        assertThrows(IllegalStateException.class,
+                () -> cache.get(key(1), () -> Mono.error(new IllegalStateException())).block());
+        assertEquals(3, cache.get(key(1), () -> render(3)).block().length());
+    }
+}
@@ -0,0 +1,92 @@
+package io.ignice.c17n.gfx;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static io.ignice.c17n.gfx.ByteMath.array;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RopeByteVectorTest {
+
+    @Test
+    void concatenationReadsThrough() {
+        final ByteVector vector = ByteVector.wrap(array(1, 2, 3)).concat(ByteVector.wrap(array(4, 5)));
+        assertEquals(5, vector.length());
+        assertArrayEquals(array(1, 2, 3, 4, 5), toArray(vector));
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.get(5));
+    }
+
+    @Test
+    void slicesShareStorage() {
+        final byte[] bytes = array(1, 2, 3, 4, 5, 6);
+        final ByteVector slice = ByteVector.wrap(bytes).slice(1, 5).slice(1, 3);
+        assertArrayEquals(array(3, 4), toArray(slice));
+        bytes[2] = 9;
+        assertEquals(9, slice.get(0));
+    }
+
+    @Test
+    void slicesSpanConcatenations() {
+        final ByteVector vector = RopeByteVector.concat(
+                RopeByteVector.concat(ByteVector.wrap(array(0, 1)), ByteVector.wrap(array(2, 3, 4))),
+                ByteVector.wrap(array(5, 6, 7)));
+        assertArrayEquals(array(1, 2, 3, 4, 5), toArray(vector.slice(1, 6)));
+        assertSame(RopeByteVector.EMPTY, vector.slice(3, 3));
+    }
+
+    @Test
+    void deepRopesDoNotOverflowTheStack() {
+        final RopeByteVector.Builder builder = RopeByteVector.builder();
+        for (int i = 0; i < 100_000; i++) {
+            builder.append(array(i & 0x7F));
+        }
+        final ByteVector vector = builder.build();
+        assertEquals(100_000, vector.length());
+        assertEquals(99_999 & 0x7F, vector.get(99_999));
+        assertEquals(12_345 & 0x7F, vector.get(12_345));
+    }
+
+    @Test
+    void concurrentAppendsAreNotLost() throws InterruptedException {
+        final RopeByteVector.Builder builder = RopeByteVector.builder();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final CountDownLatch start = new CountDownLatch(1);
+        for (int thread = 0; thread < 8; thread++) {
+            final byte value = (byte) thread;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                IntStream.range(0, 1_000).forEach(i -> builder.append(new byte[] { value }));
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        final int[] counts = new int[8];
+        builder.build().unsignedIterator().forEachRemaining((int b) -> counts[b]++);
+        final int[] expected = new int[8];
+        Arrays.fill(expected, 1_000);
+        assertArrayEquals(expected, counts);
+    }
+
+    private static byte[] toArray(ByteVector vector) {
+        final ByteBuffer buffer = ByteBuffer.allocate(vector.length());
+        vector.copyTo(0, buffer, vector.length());
+        final byte[] copied = buffer.array();
+        for (int i = 0; i < vector.length(); i++) {
+            assertEquals(copied[i], vector.get(i), "index " + i);
+        }
+        return copied;
+    }
+}
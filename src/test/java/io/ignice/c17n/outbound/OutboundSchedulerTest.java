@@ -0,0 +1,147 @@
+package io.ignice.c17n.outbound;
+
+import io.ignice.c17n.util.MessageOps;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.ignice.c17n.outbound.OutboundScheduler.Priority.BULK;
+import static io.ignice.c17n.outbound.OutboundScheduler.Priority.INTERACTIVE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundSchedulerTest {
+
+    private static final Duration WINDOW = Duration.ofMillis(50);
+
+    private VirtualTimeScheduler scheduler;
+    private StubRest rest;
+
+    /**
+     * Stands in for Discord's create message endpoint: records requests and answers with the bucket headers it is
+     * told to.
+     */
+    private final class StubRest implements OutboundSink {
+
+        private final List<Request> requests = new ArrayList<>();
+        private final AtomicReference<RateLimit> headers = new AtomicReference<>();
+        private Duration latency = Duration.ZERO;
+
+        @Override
+        public Mono<RateLimit> send(long channelId, String content) {
+            return Mono.delay(latency, scheduler)
+                    .doOnNext(tick -> requests.add(new Request(scheduler.now(TimeUnit.MILLISECONDS), channelId, content)))
+                    .flatMap(tick -> Mono.justOrEmpty(headers.get()));
+        }
+    }
+
+    private record Request(long at, long channelId, String content) {
+    }
+
+    @BeforeEach
+    void setUp() {
+        scheduler = VirtualTimeScheduler.create();
+        rest = new StubRest();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.dispose();
+    }
+
+    private OutboundScheduler outbound(int maxQueued) {
+        return new OutboundScheduler(rest, scheduler, WINDOW, maxQueued, RateLimit.CHANNEL_MESSAGES);
+    }
+
+    @Test
+    void mergesRepliesWithinWindow() {
+        final OutboundScheduler outbound = outbound(16);
+        outbound.submit(1, "a", INTERACTIVE).subscribe();
+        scheduler.advanceTimeBy(Duration.ofMillis(20));
+        outbound.submit(1, "b", INTERACTIVE).subscribe();
+        outbound.submit(2, "c", INTERACTIVE).subscribe();
+        scheduler.advanceTimeBy(Duration.ofMillis(30));
+
+        assertEquals(List.of(new Request(50, 1, "a\nb")), rest.requests);
+        scheduler.advanceTimeBy(Duration.ofMillis(20));
+        assertEquals(new Request(70, 2, "c"), rest.requests.get(1));
+        assertEquals(new OutboundScheduler.Stats(3, 2, 0, 0, 2), outbound.stats());
+    }
+
+    @Test
+    void interactiveRepliesGoFirst() {
+        rest.latency = Duration.ofMillis(100);
+        final OutboundScheduler outbound = outbound(16);
+        outbound.submit(1, "page", BULK).subscribe();
+        scheduler.advanceTimeBy(WINDOW);
+        final String page = "x".repeat(MessageOps.MAX_LENGTH);
+        outbound.submit(1, page, BULK).subscribe();
+        outbound.submit(1, "pong", INTERACTIVE).subscribe();
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+
+        assertEquals(List.of("page", "pong", page), rest.requests.stream().map(Request::content).toList());
+    }
+
+    @Test
+    void throttlesToBucket() {
+        final OutboundScheduler outbound = outbound(64);
+        for (int i = 0; i < 7; i++) {
+            // too long to merge, so every message is its own request
+            outbound.submit(1, i + "x".repeat(MessageOps.MAX_LENGTH - 1), INTERACTIVE).subscribe();
+        }
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+        assertEquals(5, rest.requests.size());
+
+        scheduler.advanceTimeBy(Duration.ofMillis(4100));
+        assertEquals(7, rest.requests.size());
+        assertEquals(50 + 5000, rest.requests.get(5).at());
+        assertTrue(outbound.stats().throttled() > 0);
+    }
+
+    @Test
+    void adoptsReportedBucket() {
+        rest.headers.set(new RateLimit(5, 0, Duration.ofSeconds(2)));
+        final OutboundScheduler outbound = outbound(64);
+        outbound.submit(1, "x".repeat(MessageOps.MAX_LENGTH), INTERACTIVE).subscribe();
+        outbound.submit(1, "y", INTERACTIVE).subscribe();
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+        assertEquals(1, rest.requests.size());
+
+        scheduler.advanceTimeBy(Duration.ofSeconds(2));
+        assertEquals(new Request(2050, 1, "y"), rest.requests.get(1));
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() {
+        final OutboundScheduler outbound = outbound(2);
+        final List<Throwable> errors = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            outbound.submit(1, "m" + i, INTERACTIVE).subscribe(null, errors::add);
+        }
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof RejectedExecutionException);
+        assertEquals(1, outbound.stats().rejected());
+    }
+
+    @Test
+    void completesOnceSentAndForgetsIdleChannels() {
+        final OutboundScheduler outbound = outbound(16);
+        final boolean[] done = new boolean[1];
+        outbound.submit(1, "a", INTERACTIVE).subscribe(null, null, () -> done[0] = true);
+        assertFalse(done[0]);
+        scheduler.advanceTimeBy(WINDOW);
+        assertTrue(done[0]);
+        assertEquals(1, outbound.stats().channels());
+
+        scheduler.advanceTimeBy(Duration.ofSeconds(5));
+        assertEquals(0, outbound.stats().channels());
+    }
+}
@@ -0,0 +1,71 @@
+package io.ignice.c17n.shard;
+
+import discord4j.core.event.domain.Event;
+import discord4j.gateway.ShardInfo;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardPipelineTest {
+
+    private static Event event(int index) {
+        return new Event(null, ShardInfo.create(index, 4)) {
+        };
+    }
+
+    @Test
+    void parsesProperties() {
+        assertEquals(Sharding.recommended(), Sharding.of("auto", "", false));
+        assertEquals(new Sharding(8, 2, 6, true), Sharding.of("8", " 2 - 5 ", true));
+        assertEquals(new Sharding(8, 3, 4, false), Sharding.of("8", "3", false));
+        assertThrows(IllegalArgumentException.class, () -> Sharding.of("4", "2-5", false));
+        assertThrows(IllegalArgumentException.class, () -> Sharding.of("0", "", false));
+
+        final Sharding sharding = Sharding.of("auto", "4-7", false);
+        assertFalse(sharding.contains(3));
+        assertTrue(sharding.contains(7));
+        assertFalse(sharding.contains(8));
+        assertNotNull(sharding.strategy());
+    }
+
+    @Test
+    void countsEventsAndErrorsPerShard() {
+        final ShardPipeline pipeline = new ShardPipeline(Sharding.recommended());
+        final Flux<Event> events = Flux.just(event(0), event(1), event(1), event(3), event(1));
+        StepVerifier.create(pipeline.dispatch(events,
+                        event -> event.getShardInfo().getIndex() == 3 ? Mono.error(new IllegalStateException()) : Mono.just(event)))
+                .expectNextCount(4)
+                .verifyComplete();
+
+        assertEquals(List.of(
+                new ShardPipeline.Stats(0, 1, 0, 0),
+                new ShardPipeline.Stats(1, 3, 0, 0),
+                new ShardPipeline.Stats(3, 1, 0, 1)), pipeline.stats());
+    }
+
+    @Test
+    void dedicatedSchedulersGiveEachShardItsOwnThread() {
+        final ShardPipeline pipeline = new ShardPipeline(new Sharding(4, 0, Sharding.ALL, true));
+        final Map<Integer, String> threads = new ConcurrentHashMap<>();
+        try {
+            pipeline.dispatch(Flux.range(0, 40).map(i -> event(i % 4)), event -> Mono.fromRunnable(() -> {
+                final String thread = Thread.currentThread().getName();
+                final String previous = threads.putIfAbsent(event.getShardInfo().getIndex(), thread);
+                assertTrue(previous == null || previous.equals(thread));
+            })).blockLast();
+        } finally {
+            pipeline.dispose();
+        }
+        assertEquals(4, threads.size());
+        assertEquals(4, threads.values().stream().distinct().count());
+        threads.forEach((index, thread) -> assertTrue(thread.startsWith("shard-" + index), thread));
+        pipeline.stats().forEach(stats -> assertEquals(10, stats.events()));
+    }
+}
@@ -0,0 +1,75 @@
+package io.ignice.c17n.shard;
+
+import discord4j.core.event.ReactiveEventAdapter;
+import discord4j.core.event.dispatch.DispatchContext;
+import discord4j.core.event.dispatch.DispatchEventMapper;
+import discord4j.core.event.domain.Event;
+import discord4j.core.event.domain.channel.TypingStartEvent;
+import discord4j.core.event.domain.lifecycle.ReadyEvent;
+import discord4j.core.event.domain.message.MessageCreateEvent;
+import discord4j.core.event.domain.message.MessageUpdateEvent;
+import discord4j.discordjson.json.gateway.TypingStart;
+import discord4j.gateway.intent.Intent;
+import discord4j.gateway.intent.IntentSet;
+import io.ignice.c17n.Gateway;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubscriptionsTest {
+
+    private static class Reactions extends ReactiveEventAdapter {
+
+        @Override
+        public Publisher<?> onTypingStart(TypingStartEvent event) {
+            return Mono.empty();
+        }
+    }
+
+    @Test
+    void gatewayOnlyNeedsMessageIntents() {
+        final Subscriptions subscriptions = Subscriptions.of(Gateway.class);
+        assertEquals(Set.of(ReadyEvent.class, MessageCreateEvent.class), subscriptions.events());
+        assertEquals(IntentSet.of(Intent.GUILDS, Intent.GUILD_MESSAGES, Intent.DIRECT_MESSAGES), subscriptions.intents());
+    }
+
+    @Test
+    void findsInheritedHandlers() {
+        final Subscriptions subscriptions = Subscriptions.of(new Reactions() {
+        }.getClass());
+        assertEquals(Set.of(TypingStartEvent.class), subscriptions.events());
+        assertEquals(IntentSet.of(Intent.GUILDS, Intent.GUILD_MESSAGE_TYPING, Intent.DIRECT_MESSAGE_TYPING),
+                subscriptions.intents());
+        assertEquals(IntentSet.nonPrivileged(), Subscriptions.of(List.of(Event.class)).intents());
+    }
+
+    @Test
+    void discardsUnwantedDispatchesBeforeMapping() {
+        final TypingStart typing = TypingStart.builder().channelId(1).userId(2).timestamp(0).build();
+        final AtomicInteger mapped = new AtomicInteger();
+        final DispatchEventMapper delegate = new DispatchEventMapper() {
+            @Override
+            public <D, E extends Event> Mono<E> handle(DispatchContext<D> context) {
+                mapped.incrementAndGet();
+                return Mono.empty();
+            }
+        };
+
+        final Subscriptions messages = Subscriptions.of(List.of(MessageCreateEvent.class, MessageUpdateEvent.class));
+        final DispatchEventMapper mapper = messages.mapper(delegate);
+        mapper.handle(DispatchContext.of(typing, null, null, null)).block();
+        mapper.handle(DispatchContext.of("READY", null, null, null)).block();
+        assertEquals(1, mapped.get());
+        assertEquals(1, messages.discarded());
+
+        Subscriptions.of(List.of(TypingStartEvent.class)).mapper(delegate)
+                .handle(DispatchContext.of(typing, null, null, null)).block();
+        assertEquals(2, mapped.get());
+    }
+}
@@ -0,0 +1,38 @@
+package io.ignice.c17n.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageOpsTest {
+
+    @Test
+    void packsLinesUpToLimit() {
+        assertEquals(List.of("aaa\nbb", "cccc\nd"),
+                MessageOps.pack(Flux.just("aaa", "bb", "cccc", "d"), 6).collectList().block());
+    }
+
+    @Test
+    void truncatesLongLines() {
+        assertEquals(List.of("a", "bbbb", "c"),
+                MessageOps.pack(Flux.just("a", "bbbbbbbb", "c"), 4).collectList().block());
+    }
+
+    @Test
+    void packsNothingIntoNothing() {
+        assertEquals(List.of(), MessageOps.pack(Flux.empty(), 10).collectList().block());
+    }
+
+    @Test
+    void staysWithinDiscordLimit() {
+        final List<String> messages = MessageOps.pack(Flux.range(0, 10_000).map(i -> i + " --> " + i * 31L), MessageOps.MAX_LENGTH)
+                .collectList()
+                .block();
+        assertNotNull(messages);
+        assertTrue(messages.stream().allMatch(message -> message.length() <= MessageOps.MAX_LENGTH));
+        assertEquals(10_000, messages.stream().mapToLong(message -> message.lines().count()).sum());
+    }
+}
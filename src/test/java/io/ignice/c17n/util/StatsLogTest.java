@@ -0,0 +1,38 @@
+package io.ignice.c17n.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsLogTest {
+
+    @Test
+    void reportsEverySourcePeriodically() {
+        final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+        final List<String> lines = new ArrayList<>();
+        final AtomicInteger reads = new AtomicInteger();
+        final StatsLog stats = new StatsLog(Duration.ofSeconds(10), scheduler, (name, value) -> lines.add(name + ": " + value))
+                .register("reads", reads::incrementAndGet)
+                .register("broken", () -> {
+                    throw new IllegalStateException("closed");
+                })
+                .register("constant", () -> "x");
+
+        scheduler.advanceTimeBy(Duration.ofSeconds(9));
+        assertEquals(List.of(), lines);
+        scheduler.advanceTimeBy(Duration.ofSeconds(11));
+        assertEquals(List.of("reads: 1", "constant: x", "reads: 2", "constant: x"), lines);
+
+        stats.dispose();
+        scheduler.advanceTimeBy(Duration.ofSeconds(10));
+        stats.report();
+        assertEquals(List.of("reads: 1", "constant: x", "reads: 2", "constant: x", "reads: 3", "constant: x"), lines);
+        assertTrue(stats.isDisposed());
+    }
+}
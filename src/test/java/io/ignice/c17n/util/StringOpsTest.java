@@ -0,0 +1,46 @@
+package io.ignice.c17n.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringOpsTest {
+
+    @Test
+    void tokenizerMatchesSplitWhitespace() {
+        for (String content : List.of("steal <@1> 25", "  bal\t<@!2>  ", "one", "a\nb\r\nc", " x ")) {
+            final List<String> tokens = new ArrayList<>();
+            final StringOps.Tokenizer tokenizer = StringOps.tokenize(content);
+            while (tokenizer.next()) {
+                tokens.add(tokenizer.token().toString());
+            }
+            assertEquals(List.of(StringOps.splitWhitespace(content)), tokens, content);
+        }
+    }
+
+    @Test
+    void tokenizerHandlesBlankContent() {
+        assertFalse(StringOps.tokenize("").next());
+        assertFalse(StringOps.tokenize(" \t\n").next());
+        assertEquals("", StringOps.firstToken("   ").toString());
+    }
+
+    @Test
+    void viewsShareContent() {
+        final String content = "  steal <@1> 25";
+        final CharSequence first = StringOps.firstToken(content);
+        assertEquals("steal", first.toString());
+        assertEquals('t', first.charAt(1));
+        assertEquals("tea", first.subSequence(1, 4).toString());
+        assertThrows(IndexOutOfBoundsException.class, () -> first.charAt(5));
+
+        final StringOps.Tokenizer tokenizer = StringOps.tokenize(content);
+        assertTrue(tokenizer.next());
+        assertEquals(2, tokenizer.start());
+        assertEquals(7, tokenizer.end());
+        assertEquals(" <@1> 25", tokenizer.rest().toString());
+    }
+}
@@ -9,4 +9,13 @@ CREATE TABLE IF NOT EXISTS users (
     created_at TIMESTAMP NOT NULL DEFAULT now(),
     updated_at TIMESTAMP NOT NULL DEFAULT now() ON UPDATE now(),
     version BIGINT NOT NULL
-);
\ No newline at end of file
+);
+CREATE TABLE IF NOT EXISTS wallet_ledger (
+    id IDENTITY NOT NULL PRIMARY KEY,
+    snowflake BIGINT NOT NULL,
+    delta BIGINT NOT NULL CONSTRAINT non_negative_delta CHECK (delta >= 0),
+    created_at TIMESTAMP NOT NULL DEFAULT now(),
+    compaction BIGINT
+);
+CREATE INDEX IF NOT EXISTS idx_wallet_ledger_snowflake_compaction ON wallet_ledger (snowflake, compaction);
+CREATE INDEX IF NOT EXISTS idx_wallet_ledger_compaction ON wallet_ledger (compaction);
\ No newline at end of file